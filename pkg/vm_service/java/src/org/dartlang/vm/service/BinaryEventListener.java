@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service;
+
+import org.dartlang.vm.service.element.Event;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface used by {@link VmService} to notify others of VM events which carry bulk binary data,
+ * such as the chunks of a heap snapshot on the {@link VmService#HEAPSNAPSHOT_STREAM_ID} stream.
+ * <p>
+ * Events are delivered on the thread reading from the VM, in the order in which they were sent.
+ */
+public interface BinaryEventListener {
+  /**
+   * Called when a binary VM event has been received.
+   *
+   * @param streamId   the stream identifier (e.g. {@link VmService#HEAPSNAPSHOT_STREAM_ID}
+   * @param event      the event metadata
+   * @param chunkIndex the index of this event within the current group of events on the stream,
+   *                   starting at {@code 0}
+   * @param last       {@code true} if this is the last event of the group
+   * @param data       a read-only view of the event's data. The view shares the connection's
+   *                   receive buffer and is only valid for the duration of the call, so it must be
+   *                   copied if it is needed afterwards.
+   */
+  void received(String streamId, Event event, int chunkIndex, boolean last, ByteBuffer data);
+}
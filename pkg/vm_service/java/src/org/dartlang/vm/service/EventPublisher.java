@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service;
+
+import org.dartlang.vm.service.element.Event;
+import org.dartlang.vm.service.logging.Logging;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Flow.Publisher} of the {@link Event}s received on one VM stream, obtained from
+ * {@link VmService#getEventPublisher(String)}.
+ * <p>
+ * Unlike a {@link VmServiceListener}, a subscriber is not called on the thread reading from the
+ * VM. Each subscriber has its own bounded queue, drained on an executor in the order in which
+ * events were received and no faster than the subscriber requests them. When a subscriber falls
+ * behind and its queue is full, its {@link OverflowPolicy} decides what happens to the next event,
+ * so a slow subscriber only delays other streams and responses if it asks to.
+ * <p>
+ * Subscribing does not subscribe the client to the stream; call {@code streamListen} for that.
+ * Subscribers are completed when the connection to the VM is closed.
+ */
+public class EventPublisher implements Flow.Publisher<Event> {
+  /**
+   * What to do with an event for a subscriber whose queue is full.
+   */
+  public enum OverflowPolicy {
+    /**
+     * Discard the oldest queued event to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Discard the new event.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Block the thread reading from the VM until the subscriber has consumed an event. This delays
+     * all other events and responses.
+     */
+    BLOCK
+  }
+
+  public static final int DEFAULT_CAPACITY = 256;
+
+  private final String streamId;
+
+  private final Executor executor;
+
+  private final List<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  private volatile boolean closed;
+
+  EventPublisher(String streamId, Executor executor) {
+    this.streamId = streamId;
+    this.executor = executor;
+  }
+
+  public String getStreamId() {
+    return streamId;
+  }
+
+  /**
+   * Subscribe with a queue of {@link #DEFAULT_CAPACITY} events which drops the oldest event when
+   * full.
+   */
+  @Override
+  public void subscribe(Flow.Subscriber<? super Event> subscriber) {
+    subscribe(subscriber, DEFAULT_CAPACITY, OverflowPolicy.DROP_OLDEST);
+  }
+
+  /**
+   * Subscribe with a queue of the given capacity and the given policy for events which do not fit.
+   *
+   * @return the subscription, which is also passed to the subscriber's {@code onSubscribe}
+   */
+  public EventSubscription subscribe(Flow.Subscriber<? super Event> subscriber, int capacity,
+                                     OverflowPolicy policy) {
+    if (subscriber == null || policy == null) {
+      throw new NullPointerException();
+    }
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    EventSubscription subscription = new EventSubscription(subscriber, capacity, policy);
+    subscriptions.add(subscription);
+    if (closed) {
+      subscriptions.remove(subscription);
+      subscription.complete();
+    } else {
+      subscription.signal();
+    }
+    return subscription;
+  }
+
+  /**
+   * Return the number of events discarded because a subscriber's queue was full, over all
+   * subscribers past and present.
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  public int getSubscriberCount() {
+    return subscriptions.size();
+  }
+
+  /**
+   * Queue the given event for every subscriber. Called on the thread reading from the VM.
+   */
+  void publish(Event event) {
+    for (EventSubscription subscription : subscriptions) {
+      subscription.offer(event);
+    }
+  }
+
+  /**
+   * Complete every subscriber once they have consumed the events already queued, and complete
+   * future subscribers immediately.
+   */
+  void close() {
+    closed = true;
+    for (EventSubscription subscription : subscriptions) {
+      subscriptions.remove(subscription);
+      subscription.complete();
+    }
+  }
+
+  /**
+   * A subscription to an {@link EventPublisher}, with its own queue of events.
+   */
+  public class EventSubscription implements Flow.Subscription {
+    private final Flow.Subscriber<? super Event> subscriber;
+    private final int capacity;
+    private final OverflowPolicy policy;
+
+    // Guarded by this
+    private final ArrayDeque<Event> queue = new ArrayDeque<>();
+    private long demand;
+    private boolean subscribed;
+    private boolean cancelled;
+    private boolean completed;
+    private boolean terminated;
+    private Throwable error;
+
+    /**
+     * The number of signals since the drain loop last checked for work, which also ensures that
+     * only one thread runs the loop at a time.
+     */
+    private final AtomicInteger pendingSignals = new AtomicInteger();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    EventSubscription(Flow.Subscriber<? super Event> subscriber, int capacity, OverflowPolicy policy) {
+      this.subscriber = subscriber;
+      this.capacity = capacity;
+      this.policy = policy;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+      return policy;
+    }
+
+    public int getCapacity() {
+      return capacity;
+    }
+
+    /**
+     * Return the number of events discarded because this subscriber's queue was full.
+     */
+    public long getDroppedCount() {
+      return dropped.get();
+    }
+
+    /**
+     * Return the number of events waiting to be delivered to the subscriber.
+     */
+    public synchronized int getQueuedCount() {
+      return queue.size();
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        synchronized (this) {
+          error = new IllegalArgumentException("non-positive request: " + n);
+        }
+        cancel();
+        signal();
+        return;
+      }
+      synchronized (this) {
+        demand += n;
+        if (demand < 0) {
+          demand = Long.MAX_VALUE;
+        }
+      }
+      signal();
+    }
+
+    @Override
+    public void cancel() {
+      synchronized (this) {
+        cancelled = true;
+        queue.clear();
+        notifyAll();
+      }
+      subscriptions.remove(this);
+    }
+
+    void offer(Event event) {
+      synchronized (this) {
+        if (cancelled || completed) {
+          return;
+        }
+        if (queue.size() >= capacity) {
+          switch (policy) {
+            case DROP_NEWEST:
+              recordDrop();
+              return;
+            case DROP_OLDEST:
+              queue.poll();
+              recordDrop();
+              break;
+            case BLOCK:
+              while (queue.size() >= capacity && !cancelled) {
+                try {
+                  wait();
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  recordDrop();
+                  return;
+                }
+              }
+              if (cancelled) {
+                return;
+              }
+              break;
+          }
+        }
+        queue.add(event);
+      }
+      signal();
+    }
+
+    void complete() {
+      synchronized (this) {
+        completed = true;
+      }
+      signal();
+    }
+
+    private void recordDrop() {
+      dropped.incrementAndGet();
+      droppedCount.incrementAndGet();
+    }
+
+    /**
+     * Schedule the drain loop unless it is already scheduled or running.
+     */
+    void signal() {
+      if (pendingSignals.getAndIncrement() == 0) {
+        try {
+          executor.execute(new Runnable() {
+            @Override
+            public void run() {
+              drain();
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          pendingSignals.set(0);
+          Logging.getLogger().logError("Failed to deliver events for " + streamId, e);
+        }
+      }
+    }
+
+    private void drain() {
+      int signals = pendingSignals.get();
+      while (true) {
+        deliverAvailable();
+        signals = pendingSignals.addAndGet(-signals);
+        if (signals == 0) {
+          return;
+        }
+      }
+    }
+
+    private void deliverAvailable() {
+      boolean subscribe;
+      synchronized (this) {
+        subscribe = !subscribed;
+        subscribed = true;
+      }
+      if (subscribe) {
+        try {
+          subscriber.onSubscribe(this);
+        } catch (Throwable e) {
+          Logging.getLogger().logError("Exception subscribing to " + streamId, e);
+          cancel();
+        }
+      }
+      while (true) {
+        Event event = null;
+        Throwable failure = null;
+        synchronized (this) {
+          if (terminated) {
+            return;
+          }
+          if (error != null) {
+            terminated = true;
+            failure = error;
+          } else if (cancelled) {
+            queue.clear();
+            return;
+          } else if (queue.isEmpty()) {
+            if (!completed) {
+              return;
+            }
+            terminated = true;
+          } else if (demand == 0) {
+            return;
+          } else {
+            event = queue.poll();
+            if (demand != Long.MAX_VALUE) {
+              --demand;
+            }
+            notifyAll();
+          }
+        }
+        try {
+          if (failure != null) {
+            subscriber.onError(failure);
+            return;
+          }
+          if (event == null) {
+            subscriber.onComplete();
+            return;
+          }
+          subscriber.onNext(event);
+        } catch (Throwable e) {
+          Logging.getLogger().logError("Exception processing event: " + streamId + ", " + (event != null ? event.getJson() : null), e);
+          cancel();
+          return;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.dartlang.vm.service.element.Event;
+import org.dartlang.vm.service.element.EventKind;
+import org.dartlang.vm.service.element.IdAssignmentPolicy;
+import org.dartlang.vm.service.element.IdZone;
+import org.dartlang.vm.service.element.IdZoneBackingBufferKind;
+import org.dartlang.vm.service.element.Obj;
+import org.dartlang.vm.service.element.ObjRef;
+import org.dartlang.vm.service.element.RPCError;
+import org.dartlang.vm.service.element.Response;
+import org.dartlang.vm.service.element.Stack;
+import org.dartlang.vm.service.logging.Logging;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Allocates the temporary ids in the responses to inspection requests in ID zones which are
+ * created lazily for each isolate, rather than in the default zone of the isolate.
+ * <p>
+ * The ids allocated in a zone are only needed while its isolate remains paused, so the zone is
+ * invalidated when the isolate resumes. The number of ids allocated in each zone is estimated from
+ * the responses routed through it. Once a zone is nearly full a new zone is used for later
+ * requests, so that the ids of the objects being inspected are not evicted from the ring buffer
+ * behind the zone, and the zones which were replaced are deleted when the isolate resumes.
+ */
+public class IdZoneManager {
+  /**
+   * The default number of ids which each zone can hold.
+   */
+  public static final int DEFAULT_CAPACITY = 4096;
+
+  /**
+   * The number of zones an isolate may have before the last one is used even when full.
+   */
+  private static final int MAX_ZONES_PER_ISOLATE = 8;
+
+  /**
+   * The zones of an isolate.
+   */
+  private static class Zones {
+    /**
+     * The zone in which ids are being allocated, or {@code null} if it has not been requested.
+     */
+    CompletableFuture<String> current;
+
+    /**
+     * The temporary ids seen in responses from the current zone since it was created or last
+     * invalidated.
+     */
+    final Set<String> ids = new HashSet<>();
+
+    /**
+     * Zones which are no longer used for new requests but whose ids may still be in use.
+     */
+    final List<CompletableFuture<String>> retired = new ArrayList<>();
+  }
+
+  private final VmService vmService;
+  private final int capacity;
+  private final IdAssignmentPolicy idAssignmentPolicy;
+
+  // Guarded by this
+  private final Map<String, Zones> zones = new HashMap<>();
+
+  private final VmServiceListener listener = new VmServiceListener() {
+    @Override
+    public void connectionOpened() {
+    }
+
+    @Override
+    public void received(String streamId, Event event) {
+      if (event.getKind() != null && event.getIsolate() != null) {
+        handleEvent(event.getKind(), event.getIsolate().getId());
+      }
+    }
+
+    @Override
+    public void connectionClosed() {
+      forgetAll();
+    }
+  };
+
+  private final ReconnectListener reconnectListener = new ReconnectListener() {
+    @Override
+    public void reconnecting(int attempt) {
+    }
+
+    @Override
+    public void reconnected(long latencyMillis, int replayedCount, int droppedCount) {
+      // The VM deletes the zones of a client when it disconnects
+      forgetAll();
+    }
+  };
+
+  public IdZoneManager(VmService vmService) {
+    this(vmService, DEFAULT_CAPACITY, IdAssignmentPolicy.ReuseExisting);
+  }
+
+  /**
+   * @param capacity           the number of ids which each zone can hold
+   * @param idAssignmentPolicy whether the same object is given the same id in repeated responses,
+   *                           which keeps zones from filling when the same objects are inspected
+   *                           repeatedly at the cost of a search of the zone for each object
+   */
+  public IdZoneManager(VmService vmService, int capacity, IdAssignmentPolicy idAssignmentPolicy) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    this.vmService = vmService;
+    this.capacity = capacity;
+    this.idAssignmentPolicy = idAssignmentPolicy;
+  }
+
+  /**
+   * Start following the pause state of isolates, subscribing to the {@code Debug} and
+   * {@code Isolate} streams if necessary.
+   */
+  public CompletableFuture<Void> start() {
+    vmService.addVmServiceListener(listener);
+    vmService.addReconnectListener(reconnectListener);
+    return vmService.streamListenIfNeededAsync(VmService.DEBUG_STREAM_ID)
+        .thenCompose(subscribed -> vmService.streamListenIfNeededAsync(VmService.ISOLATE_STREAM_ID))
+        .thenApply(subscribed -> null);
+  }
+
+  /**
+   * Stop following isolates and delete all zones. The client stays subscribed to the
+   * {@code Debug} and {@code Isolate} streams, whose events the caller is likely to need anyway.
+   */
+  public CompletableFuture<Void> stop() {
+    vmService.removeVmServiceListener(listener);
+    vmService.removeReconnectListener(reconnectListener);
+    List<CompletableFuture<Void>> deleted = new ArrayList<>();
+    synchronized (this) {
+      for (Map.Entry<String, Zones> entry : zones.entrySet()) {
+        Zones isolateZones = entry.getValue();
+        if (isolateZones.current != null) {
+          isolateZones.retired.add(isolateZones.current);
+        }
+        deleted.add(deleteRetired(entry.getKey(), isolateZones));
+      }
+      zones.clear();
+    }
+    return CompletableFuture.allOf(deleted.toArray(new CompletableFuture<?>[0]));
+  }
+
+  /**
+   * Return the id of the zone in which to allocate the ids of the next request for the given
+   * isolate, creating it if necessary.
+   */
+  public CompletableFuture<String> getIdZoneId(final String isolateId) {
+    synchronized (this) {
+      Zones isolateZones = zones.get(isolateId);
+      if (isolateZones == null) {
+        isolateZones = new Zones();
+        zones.put(isolateId, isolateZones);
+      }
+      if (isolateZones.current == null) {
+        final Zones created = isolateZones;
+        isolateZones.ids.clear();
+        isolateZones.current = vmService.createIdZoneAsync(isolateId, IdZoneBackingBufferKind.Ring,
+            idAssignmentPolicy, capacity).thenApply(new Function<IdZone, String>() {
+          @Override
+          public String apply(IdZone zone) {
+            return zone.getId();
+          }
+        });
+        isolateZones.current.whenComplete((id, e) -> {
+          if (e != null) {
+            // Try again on the next request
+            synchronized (IdZoneManager.this) {
+              if (zones.get(isolateId) == created && created.current != null
+                  && created.current.isCompletedExceptionally()) {
+                created.current = null;
+              }
+            }
+          }
+        });
+      }
+      return isolateZones.current;
+    }
+  }
+
+  /**
+   * Return the estimated number of ids allocated in the current zone of the given isolate since it
+   * was created or last invalidated.
+   */
+  public synchronized int getAllocatedIdCount(String isolateId) {
+    Zones isolateZones = zones.get(isolateId);
+    return isolateZones != null ? isolateZones.ids.size() : 0;
+  }
+
+  /**
+   * Return the estimated fraction of the current zone of the given isolate which is in use.
+   */
+  public double getFillRatio(String isolateId) {
+    return Math.min(1.0, (double) getAllocatedIdCount(isolateId) / capacity);
+  }
+
+  /**
+   * Return the number of zones of the given isolate, including those replaced because they were
+   * full which will be deleted when the isolate resumes.
+   */
+  public synchronized int getZoneCount(String isolateId) {
+    Zones isolateZones = zones.get(isolateId);
+    if (isolateZones == null) {
+      return 0;
+    }
+    return isolateZones.retired.size() + (isolateZones.current != null ? 1 : 0);
+  }
+
+  public CompletableFuture<Obj> getObject(final String isolateId, final String objectId,
+                                          final Integer offset, final Integer count) {
+    return route(isolateId, zoneId -> vmService.getObjectAsync(isolateId, objectId, offset, count, zoneId));
+  }
+
+  public CompletableFuture<ObjRef> evaluate(final String isolateId, final String targetId,
+                                            final String expression, final Map<String, String> scope,
+                                            final Boolean disableBreakpoints) {
+    return route(isolateId, zoneId -> vmService.evaluateAsync(isolateId, targetId, expression, scope,
+        disableBreakpoints, zoneId));
+  }
+
+  public CompletableFuture<ObjRef> evaluateInFrame(final String isolateId, final int frameIndex,
+                                                   final String expression,
+                                                   final Map<String, String> scope,
+                                                   final Boolean disableBreakpoints) {
+    return route(isolateId, zoneId -> vmService.evaluateInFrameAsync(isolateId, frameIndex,
+        expression, scope, disableBreakpoints, zoneId));
+  }
+
+  public CompletableFuture<Stack> getStack(final String isolateId, final Integer limit) {
+    return route(isolateId, zoneId -> vmService.getStackAsync(isolateId, limit, zoneId));
+  }
+
+  /**
+   * Send a request with the id of the current zone of the given isolate, and count the ids
+   * allocated by its response.
+   */
+  private <T extends Response> CompletableFuture<T> route(
+      final String isolateId, final Function<String, CompletableFuture<T>> request) {
+    final CompletableFuture<String> zone = getIdZoneId(isolateId);
+    return zone.thenCompose(request).thenApply(response -> {
+      Set<String> ids = new HashSet<>();
+      collectIds(response.getJson(), ids);
+      allocated(isolateId, zone, ids);
+      return response;
+    });
+  }
+
+  private synchronized void allocated(String isolateId, CompletableFuture<String> zone, Set<String> ids) {
+    Zones isolateZones = zones.get(isolateId);
+    if (isolateZones == null || isolateZones.current != zone) {
+      // The zone has since been invalidated or replaced
+      return;
+    }
+    int previousCount = isolateZones.ids.size();
+    isolateZones.ids.addAll(ids);
+    if (isolateZones.ids.size() >= capacity * 3 / 4) {
+      if (isolateZones.retired.size() + 1 >= MAX_ZONES_PER_ISOLATE) {
+        if (previousCount < capacity * 3 / 4) {
+          Logging.getLogger().logInformation("All " + MAX_ZONES_PER_ISOLATE + " ID zones of "
+              + isolateId + " are nearly full, older ids will expire");
+        }
+        return;
+      }
+      isolateZones.retired.add(isolateZones.current);
+      isolateZones.current = null;
+    }
+  }
+
+  private void handleEvent(EventKind kind, String isolateId) {
+    switch (kind) {
+      case Resume:
+      case IsolateReload:
+        resumed(isolateId);
+        break;
+      case IsolateExit:
+        synchronized (this) {
+          zones.remove(isolateId);
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Invalidate the current zone of the given isolate and delete the zones it replaced, since no
+   * ids handed out while the isolate was paused can be relied on once it runs.
+   */
+  private synchronized void resumed(final String isolateId) {
+    Zones isolateZones = zones.get(isolateId);
+    if (isolateZones == null) {
+      return;
+    }
+    deleteRetired(isolateId, isolateZones);
+    if (isolateZones.current != null) {
+      isolateZones.ids.clear();
+      isolateZones.current.thenCompose(zoneId -> vmService.invalidateIdZoneAsync(isolateId, zoneId))
+          .whenComplete((success, e) -> {
+            if (e != null && !RPCErrorException.hasCode(e, RPCError.CONNECTION_CLOSED)) {
+              Logging.getLogger().logError("Failed to invalidate ID zone of " + isolateId, e);
+            }
+          });
+    }
+  }
+
+  private CompletableFuture<Void> deleteRetired(final String isolateId, Zones isolateZones) {
+    List<CompletableFuture<Void>> deleted = new ArrayList<>();
+    for (CompletableFuture<String> zone : isolateZones.retired) {
+      deleted.add(zone.thenCompose(zoneId -> vmService.deleteIdZoneAsync(isolateId, zoneId))
+          .handle((success, e) -> {
+            // Zones of isolates which have exited or failed to be created need not be deleted
+            return null;
+          }));
+    }
+    isolateZones.retired.clear();
+    return CompletableFuture.allOf(deleted.toArray(new CompletableFuture<?>[0]));
+  }
+
+  private synchronized void forgetAll() {
+    zones.clear();
+  }
+
+  /**
+   * Add the temporary ids in the given response to {@code ids}. These are the {@code objects/}
+   * ids of instances, and of contexts, type arguments, errors, closure functions and other objects
+   * without a permanent id, whatever their type. Fixed ids, such as those of {@code null} and small
+   * integers, are not allocated in zones.
+   */
+  static void collectIds(JsonElement json, Set<String> ids) {
+    if (json == null) {
+      return;
+    }
+    if (json.isJsonObject()) {
+      JsonObject object = json.getAsJsonObject();
+      JsonElement id = object.get("id");
+      JsonElement fixedId = object.get("fixedId");
+      if (id != null && id.isJsonPrimitive() && id.getAsString().startsWith("objects/")
+          && (fixedId == null || !fixedId.getAsBoolean())) {
+        ids.add(id.getAsString());
+      }
+      for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+        if (entry.getValue().isJsonObject() || entry.getValue().isJsonArray()) {
+          collectIds(entry.getValue(), ids);
+        }
+      }
+    } else if (json.isJsonArray()) {
+      for (JsonElement element : (JsonArray) json) {
+        collectIds(element, ids);
+      }
+    }
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service;
+
+import org.dartlang.vm.service.element.RPCError;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * The exception with which the futures returned by the asynchronous {@link VmService} methods
+ * complete when the VM responds with an {@link RPCError}.
+ */
+@SuppressWarnings("serial")
+public class RPCErrorException extends RuntimeException {
+  private final RPCError error;
+
+  public RPCErrorException(RPCError error) {
+    super(error.getMessage());
+    this.error = error;
+  }
+
+  /**
+   * Return the error returned by the VM.
+   */
+  public RPCError getError() {
+    return error;
+  }
+
+  /**
+   * Return {@code true} if the given exception, or the cause of the given
+   * {@link CompletionException}, is an {@link RPCErrorException} with the given error code.
+   */
+  public static boolean hasCode(Throwable e, int code) {
+    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+    return cause instanceof RPCErrorException && ((RPCErrorException) cause).error.getCode() == code;
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service;
+
+/**
+ * Interface used by {@link VmService} to notify others of attempts to restore a lost connection.
+ * See {@link VmService#setAutoReconnect(int, long)}.
+ */
+public interface ReconnectListener {
+  /**
+   * Called on the reconnecting thread before each attempt to reconnect.
+   *
+   * @param attempt the number of the attempt, starting at {@code 1}
+   */
+  void reconnecting(int attempt);
+
+  /**
+   * Called once the connection has been restored. Stream subscriptions have been restored, and
+   * requests which were waiting for a response when the connection was lost have either been sent
+   * again or failed with {@link org.dartlang.vm.service.element.RPCError#CONNECTION_CLOSED}.
+   *
+   * @param latencyMillis the number of milliseconds from losing the connection to restoring it
+   * @param replayedCount the number of requests which were sent again
+   * @param droppedCount  the number of requests which were failed because they may not be safe to
+   *                      send twice
+   */
+  void reconnected(long latencyMillis, int replayedCount, int droppedCount);
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service;
+
+import org.dartlang.vm.service.element.Sentinel;
+
+/**
+ * The exception with which the futures returned by the asynchronous {@link VmService} methods
+ * complete when the VM responds with a {@link Sentinel} (e.g. the isolate has exited or the object
+ * has been collected).
+ */
+@SuppressWarnings("serial")
+public class SentinelException extends RuntimeException {
+  private final Sentinel sentinel;
+
+  public SentinelException(Sentinel sentinel) {
+    super("Sentinel: " + sentinel.getKind());
+    this.sentinel = sentinel;
+  }
+
+  /**
+   * Return the sentinel returned by the VM.
+   */
+  public Sentinel getSentinel() {
+    return sentinel;
+  }
+}
@@ -14,28 +14,44 @@
 package org.dartlang.vm.service;
 
 import com.google.common.collect.Maps;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
-import de.roderick.weberknecht.WebSocket;
-import de.roderick.weberknecht.WebSocketEventHandler;
-import de.roderick.weberknecht.WebSocketException;
-import de.roderick.weberknecht.WebSocketMessage;
+import com.google.gson.stream.JsonReader;
 import org.dartlang.vm.service.consumer.*;
 import org.dartlang.vm.service.element.*;
+import org.dartlang.vm.service.internal.BlockingRequestSink;
+import org.dartlang.vm.service.internal.JdkWebSocketTransport;
+import org.dartlang.vm.service.internal.PendingRequests;
+import org.dartlang.vm.service.internal.RawMessage;
+import org.dartlang.vm.service.internal.RequestCoalescer;
 import org.dartlang.vm.service.internal.RequestSink;
+import org.dartlang.vm.service.internal.ResponseCache;
 import org.dartlang.vm.service.internal.VmServiceConst;
-import org.dartlang.vm.service.internal.WebSocketRequestSink;
+import org.dartlang.vm.service.internal.WebSocketTransport;
+import org.dartlang.vm.service.logging.Logger;
 import org.dartlang.vm.service.logging.Logging;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CountDownLatch;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -49,6 +65,15 @@ abstract class VmServiceBase implements VmServiceConst {
    * @return an API object for interacting with the VM service (not {@code null}).
    */
   public static VmService connect(final String url) throws IOException {
+    return connect(url, new JdkWebSocketTransport());
+  }
+
+  /**
+   * Connect to the VM observatory service via the specified URI using the given transport.
+   *
+   * @return an API object for interacting with the VM service (not {@code null}).
+   */
+  public static VmService connect(final String url, WebSocketTransport transport) throws IOException {
     // Validate URL
     URI uri;
     try {
@@ -61,95 +86,80 @@ abstract class VmServiceBase implements VmServiceConst {
       throw new IOException("Unsupported URL scheme: " + wsScheme);
     }
 
-    // Create web socket and observatory
-    WebSocket webSocket;
-    try {
-      webSocket = new WebSocket(uri);
-    } catch (WebSocketException e) {
-      throw new IOException("Failed to create websocket: " + url, e);
-    }
+    // Establish WebSocket Connection, forwarding responses to the observatory
     final VmService vmService = new VmService();
+    vmService.uri = uri;
+    vmService.transport = transport;
+    vmService.requestSink = vmService.openConnection();
 
-    // Setup event handler for forwarding responses
-    webSocket.setEventHandler(new WebSocketEventHandler() {
-      @Override
-      public void onClose() {
-        Logging.getLogger().logInformation("VM connection closed: " + url);
-
-        vmService.connectionClosed();
+    // Check protocol version
+    try {
+      vmService.runtimeVersion = vmService.getVersionAsync().get(5, TimeUnit.SECONDS);
+    } catch (TimeoutException e) {
+      throw new IOException("Failed to determine protocol version");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RPCErrorException) {
+        RPCError error = ((RPCErrorException) e.getCause()).getError();
+        String msg = "Failed to determine protocol version: " + error.getCode() + "\n  message: "
+            + error.getMessage() + "\n  details: " + error.getDetails();
+        Logging.getLogger().logInformation(msg);
+        throw new IOException(msg);
       }
+      throw new IOException("Failed to determine protocol version", e.getCause());
+    } catch (InterruptedException e) {
+      throw new RuntimeException("Interrupted while waiting for response", e);
+    }
 
-      @Override
-      public void onMessage(WebSocketMessage message) {
-        Logging.getLogger().logInformation("VM message: " + message.getText());
-        try {
-          vmService.processMessage(message.getText());
-        } catch (Exception e) {
-          Logging.getLogger().logError(e.getMessage(), e);
-        }
-      }
+    return vmService;
+  }
 
+  /**
+   * Open a new connection to {@link #uri}, forwarding responses to the observatory.
+   */
+  RequestSink openConnection() throws IOException {
+    final int connection;
+    synchronized (connectionLock) {
+      connection = ++connectionCount;
+    }
+    final String url = uri.toString();
+    return transport.connect(uri, new WebSocketTransport.Listener() {
       @Override
       public void onOpen() {
-        vmService.connectionOpened();
+        if (connection == 1) {
+          connectionOpened();
+        }
 
         Logging.getLogger().logInformation("VM connection open: " + url);
       }
 
       @Override
-      public void onPing() {
+      public void onText(String text) {
+        if (Logging.getLogger() != Logger.NULL) {
+          Logging.getLogger().logInformation("VM message: " + text);
+        }
+        try {
+          processMessage(text);
+        } catch (Exception e) {
+          Logging.getLogger().logError(e.getMessage(), e);
+        }
       }
 
       @Override
-      public void onPong() {
-      }
-    });
-
-    // Establish WebSocket Connection
-    //noinspection TryWithIdenticalCatches
-    try {
-      webSocket.connect();
-    } catch (WebSocketException e) {
-      throw new IOException("Failed to connect: " + url, e);
-    } catch (ArrayIndexOutOfBoundsException e) {
-      // The weberknecht can occasionally throw an array index exception if a connect terminates on initial connect
-      // (de.roderick.weberknecht.WebSocket.connect, WebSocket.java:126).
-      throw new IOException("Failed to connect: " + url, e);
-    }
-    vmService.requestSink = new WebSocketRequestSink(webSocket);
-
-    // Check protocol version
-    final CountDownLatch latch = new CountDownLatch(1);
-    final String[] errMsg = new String[1];
-    vmService.getVersion(new VersionConsumer() {
-      @Override
-      public void onError(RPCError error) {
-        String msg = "Failed to determine protocol version: " + error.getCode() + "\n  message: "
-            + error.getMessage() + "\n  details: " + error.getDetails();
-        Logging.getLogger().logInformation(msg);
-        errMsg[0] = msg;
+      public void onBinary(ByteBuffer data) {
+        try {
+          processBinaryMessage(data);
+        } catch (Exception e) {
+          Logging.getLogger().logError(e.getMessage(), e);
+        }
       }
 
       @Override
-      public void received(Version version) {
-        vmService.runtimeVersion = version;
+      public void onClose() {
+        Logging.getLogger().logInformation("VM connection closed: " + url);
 
-        latch.countDown();
+        connectionLost(connection);
       }
     });
-
-    try {
-      if (!latch.await(5, TimeUnit.SECONDS)) {
-        throw new IOException("Failed to determine protocol version");
-      }
-      if (errMsg[0] != null) {
-        throw new IOException(errMsg[0]);
-      }
-    } catch (InterruptedException e) {
-      throw new RuntimeException("Interrupted while waiting for response", e);
-    }
-
-    return vmService;
   }
 
   /**
@@ -165,15 +175,35 @@ abstract class VmServiceBase implements VmServiceConst {
   }
 
   /**
-   * A mapping between {@link String} ids' and the associated {@link Consumer} that was passed when
-   * the request was made. Synchronize against {@link #consumerMapLock} before accessing this field.
+   * The requests which have been sent but not yet answered, keyed by request id.
+   */
+  private final PendingRequests pendingRequests = new PendingRequests(new PendingRequests.TimeoutHandler() {
+    @Override
+    public void timedOut(PendingRequests.Entry entry) {
+      entry.getConsumer().onError(RPCError.timedOut(entry.getMethod(), entry.getTimeoutMillis()));
+    }
+  });
+
+  /**
+   * The number of milliseconds to wait for a response before failing a request, or {@code 0} to
+   * wait until the connection is closed.
    */
-  private final Map<String, Consumer> consumerMap = Maps.newHashMap();
+  private volatile long requestTimeoutMillis;
 
   /**
-   * The object used to synchronize access to {@link #consumerMap}.
+   * Per-method overrides of {@link #requestTimeoutMillis}.
    */
-  private final Object consumerMapLock = new Object();
+  private final Map<String, Long> methodTimeoutMillis = new ConcurrentHashMap<>();
+
+  /**
+   * Shares in-flight requests between identical reads, or {@code null} if coalescing is disabled.
+   */
+  private volatile RequestCoalescer coalescer;
+
+  /**
+   * Recent responses to reads of isolate state, or {@code null} if caching is disabled.
+   */
+  private volatile ResponseCache responseCache;
 
   /**
    * The unique ID for the next request.
@@ -183,7 +213,29 @@ abstract class VmServiceBase implements VmServiceConst {
   /**
    * A list of objects to which {@link Event}s from the VM are forwarded.
    */
-  private final List<VmServiceListener> vmListeners = new ArrayList<>();
+  private final List<VmServiceListener> vmListeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * The publishers to which {@link Event}s from the VM are forwarded, by stream.
+   */
+  private final Map<String, EventPublisher> eventPublishers = new ConcurrentHashMap<>();
+
+  /**
+   * The executor on which events are delivered to {@link EventPublisher} subscribers, created
+   * when the first publisher is requested.
+   */
+  private ExecutorService eventExecutor;
+
+  /**
+   * A list of objects to which binary {@link Event}s from the VM are forwarded.
+   */
+  private final List<BinaryEventListener> binaryListeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * The index of the next binary event in the current group of events, by stream. Only accessed
+   * on the thread reading from the VM.
+   */
+  private final Map<String, Integer> binaryChunkIndices = new HashMap<>();
 
   /**
    * A list of objects to which {@link Event}s from the VM are forwarded.
@@ -193,10 +245,58 @@ abstract class VmServiceBase implements VmServiceConst {
   /**
    * The channel through which observatory requests are made.
    */
-  RequestSink requestSink;
+  volatile RequestSink requestSink;
 
   Version runtimeVersion;
 
+  /**
+   * The address of the VM and the transport used to reach it, used to reconnect.
+   */
+  URI uri;
+  WebSocketTransport transport;
+
+  /**
+   * Guards {@link #connectionCount}, and the replacement of {@link #requestSink} once reconnected
+   * against {@link #disconnect()}.
+   */
+  private final Object connectionLock = new Object();
+
+  /**
+   * The number of connections opened, which identifies the current connection.
+   */
+  private int connectionCount;
+
+  /**
+   * {@code true} once {@link #disconnect()} has been called.
+   */
+  private volatile boolean disconnecting;
+
+  /**
+   * The number of times to try to restore a lost connection, or {@code 0} to not try.
+   */
+  private volatile int reconnectAttempts;
+
+  /**
+   * The number of milliseconds to wait before the first attempt to reconnect. The delay doubles
+   * with each further attempt, up to {@link #MAX_RECONNECT_DELAY_MILLIS}.
+   */
+  private volatile long reconnectDelayMillis;
+
+  private static final long MAX_RECONNECT_DELAY_MILLIS = 10000;
+
+  /**
+   * The streams to which the client has successfully subscribed, restored on reconnection.
+   */
+  private final Set<String> subscribedStreams = ConcurrentHashMap.newKeySet();
+
+  private final List<ReconnectListener> reconnectListeners = new CopyOnWriteArrayList<>();
+
+  private final AtomicInteger reconnectCount = new AtomicInteger();
+
+  private final AtomicInteger droppedRequestCount = new AtomicInteger();
+
+  private volatile long lastReconnectLatencyMillis = -1;
+
   /**
    * Add a listener to receive {@link Event}s from the VM.
    */
@@ -211,6 +311,67 @@ abstract class VmServiceBase implements VmServiceConst {
     vmListeners.remove(listener);
   }
 
+  /**
+   * Return the publisher of the {@link Event}s received on the given stream. Its subscribers are
+   * called on a separate thread, each with its own bounded queue, so that a slow subscriber does not
+   * delay responses or events on other streams.
+   *
+   * @param streamId the stream identifier (e.g. {@link VmService#DEBUG_STREAM_ID})
+   */
+  public EventPublisher getEventPublisher(String streamId) {
+    EventPublisher publisher = eventPublishers.get(streamId);
+    if (publisher == null) {
+      synchronized (eventPublishers) {
+        publisher = eventPublishers.get(streamId);
+        if (publisher == null) {
+          if (eventExecutor == null) {
+            eventExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+              private final AtomicInteger count = new AtomicInteger();
+
+              @Override
+              public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "VM service events " + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              }
+            });
+          }
+          publisher = new EventPublisher(streamId, eventExecutor);
+          eventPublishers.put(streamId, publisher);
+        }
+      }
+    }
+    return publisher;
+  }
+
+  /**
+   * Add a listener to receive binary {@link Event}s from the VM.
+   */
+  public void addBinaryEventListener(BinaryEventListener listener) {
+    binaryListeners.add(listener);
+  }
+
+  /**
+   * Remove the given binary event listener from the VM.
+   */
+  public void removeBinaryEventListener(BinaryEventListener listener) {
+    binaryListeners.remove(listener);
+  }
+
+  /**
+   * Add a listener to be notified of attempts to restore a lost connection.
+   */
+  public void addReconnectListener(ReconnectListener listener) {
+    reconnectListeners.add(listener);
+  }
+
+  /**
+   * Remove the given reconnect listener.
+   */
+  public void removeReconnectListener(ReconnectListener listener) {
+    reconnectListeners.remove(listener);
+  }
+
   /**
    * Add a VM RemoteServiceRunner.
    */
@@ -232,11 +393,142 @@ abstract class VmServiceBase implements VmServiceConst {
     return runtimeVersion;
   }
 
+  /**
+   * Set the number of milliseconds to wait for a response before a request is failed with
+   * {@link RPCError#REQUEST_TIMED_OUT}. A value of {@code 0} (the default) means requests wait until
+   * the connection is closed.
+   */
+  public void setRequestTimeout(long timeoutMillis) {
+    requestTimeoutMillis = timeoutMillis;
+  }
+
+  /**
+   * Set the number of milliseconds to wait for a response to requests for the given method,
+   * overriding {@link #setRequestTimeout(long)}. This is useful for methods such as
+   * {@code getSourceReport} whose responses legitimately take longer than others.
+   */
+  public void setRequestTimeout(String method, long timeoutMillis) {
+    methodTimeoutMillis.put(method, timeoutMillis);
+  }
+
+  /**
+   * Enable or disable coalescing of identical reads. When enabled, a request for one of the
+   * {@link RequestCoalescer#DEFAULT_METHODS} which is identical to a request still waiting for a
+   * response is not sent. Instead both consumers receive the response to the first request.
+   */
+  public void setRequestCoalescing(boolean enabled) {
+    coalescer = enabled ? new RequestCoalescer(RequestCoalescer.DEFAULT_METHODS) : null;
+  }
+
+  /**
+   * Return the number of requests which were answered by an identical in-flight request, or
+   * {@code 0} if coalescing is not enabled.
+   */
+  public long getCoalescedRequestCount() {
+    RequestCoalescer coalescer = this.coalescer;
+    return coalescer != null ? coalescer.getHitCount() : 0;
+  }
+
+  /**
+   * Return the number of requests which could have been coalesced but were sent because no
+   * identical request was in flight, or {@code 0} if coalescing is not enabled.
+   */
+  public long getUncoalescedRequestCount() {
+    RequestCoalescer coalescer = this.coalescer;
+    return coalescer != null ? coalescer.getMissCount() : 0;
+  }
+
+  /**
+   * Set the maximum number of responses to {@code getObject}, {@code getInstance},
+   * {@code getLibrary} and {@code getScripts} to cache, or {@code 0} (the default) to disable
+   * caching. Objects and classes are only cached while their isolate is paused, which requires
+   * listening to the {@link VmService#DEBUG_STREAM_ID} stream, and libraries and scripts are only
+   * cached while listening to the {@link VmService#ISOLATE_STREAM_ID} stream, whose events report
+   * that they may have changed. Requests such as {@code evaluate} and
+   * {@code setTraceClassAllocation} drop the responses for their isolate. Responses served from the
+   * cache are delivered to the consumer before the request method returns.
+   */
+  public void setResponseCacheSize(int maxEntries) {
+    ResponseCache responseCache = maxEntries > 0 ? new ResponseCache(maxEntries) : null;
+    if (responseCache != null) {
+      updateResponseCacheTracking(responseCache);
+    }
+    this.responseCache = responseCache;
+  }
+
+  /**
+   * Return the number of requests which were answered from the response cache.
+   */
+  public long getResponseCacheHitCount() {
+    ResponseCache responseCache = this.responseCache;
+    return responseCache != null ? responseCache.getHitCount() : 0;
+  }
+
+  /**
+   * Return the number of cacheable requests which were not in the response cache.
+   */
+  public long getResponseCacheMissCount() {
+    ResponseCache responseCache = this.responseCache;
+    return responseCache != null ? responseCache.getMissCount() : 0;
+  }
+
+  /**
+   * Return the number of requests which have been sent but not yet answered.
+   */
+  public int getPendingRequestCount() {
+    return pendingRequests.size();
+  }
+
   /**
    * Disconnect from the VM observatory service.
    */
   public void disconnect() {
-    requestSink.close();
+    RequestSink sink;
+    synchronized (connectionLock) {
+      disconnecting = true;
+      sink = requestSink;
+    }
+    sink.close();
+  }
+
+  /**
+   * Try to restore the connection if it is lost, rather than failing all requests. While
+   * reconnecting, new requests are queued. Once reconnected, subscriptions to streams are restored,
+   * requests which were waiting for a response are sent again if they only read state and are
+   * otherwise failed with {@link RPCError#CONNECTION_CLOSED}, and then the queued requests are sent.
+   * If all attempts fail, the connection is closed as if reconnection were disabled.
+   *
+   * @param maxAttempts      the number of attempts to make, or {@code 0} (the default) to disable
+   *                         reconnection
+   * @param retryDelayMillis the number of milliseconds to wait before the first attempt, doubling
+   *                         with each further attempt
+   */
+  public void setAutoReconnect(int maxAttempts, long retryDelayMillis) {
+    reconnectDelayMillis = retryDelayMillis;
+    reconnectAttempts = maxAttempts;
+  }
+
+  /**
+   * Return the number of times the connection has been restored.
+   */
+  public int getReconnectCount() {
+    return reconnectCount.get();
+  }
+
+  /**
+   * Return the number of milliseconds it took to restore the connection the last time it was
+   * lost, or {@code -1} if it has not been restored.
+   */
+  public long getLastReconnectLatency() {
+    return lastReconnectLatencyMillis;
+  }
+
+  /**
+   * Return the number of requests which were failed because the connection was lost while they
+   * were waiting for a response and they were not safe to send again.
+   */
+  public int getDroppedRequestCount() {
+    return droppedRequestCount.get();
   }
 
   /**
@@ -293,6 +585,46 @@ abstract class VmServiceBase implements VmServiceConst {
     });
   }
 
+  /**
+   * Asynchronous variant of {@link #getInstance} which returns a {@link CompletableFuture} rather
+   * than taking a consumer.
+   */
+  public CompletableFuture<Instance> getInstanceAsync(String isolateId, String instanceId) {
+    final CompletableFuture<Instance> future = new CompletableFuture<>();
+    getInstance(isolateId, instanceId, new GetInstanceConsumer() {
+      @Override
+      public void onError(RPCError error) {
+        future.completeExceptionally(new RPCErrorException(error));
+      }
+
+      @Override
+      public void received(Instance response) {
+        future.complete(response);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Asynchronous variant of {@link #getLibrary} which returns a {@link CompletableFuture} rather
+   * than taking a consumer.
+   */
+  public CompletableFuture<Library> getLibraryAsync(String isolateId, String libraryId) {
+    final CompletableFuture<Library> future = new CompletableFuture<>();
+    getLibrary(isolateId, libraryId, new GetLibraryConsumer() {
+      @Override
+      public void onError(RPCError error) {
+        future.completeExceptionally(new RPCErrorException(error));
+      }
+
+      @Override
+      public void received(Library response) {
+        future.complete(response);
+      }
+    });
+    return future;
+  }
+
   public abstract void getObject(String isolateId, String objectId, GetObjectConsumer consumer);
 
   /**
@@ -316,31 +648,354 @@ abstract class VmServiceBase implements VmServiceConst {
     request(method, params, consumer);
   }
 
+  /**
+   * Asynchronous variant of {@link #callServiceExtension(String, String, JsonObject,
+   * ServiceExtensionConsumer)} which returns a {@link CompletableFuture} rather than taking a
+   * consumer.
+   */
+  public CompletableFuture<JsonObject> callServiceExtensionAsync(String isolateId, String method, JsonObject params) {
+    final CompletableFuture<JsonObject> future = new CompletableFuture<>();
+    callServiceExtension(isolateId, method, params, new ServiceExtensionConsumer() {
+      @Override
+      public void onError(RPCError error) {
+        future.completeExceptionally(new RPCErrorException(error));
+      }
+
+      @Override
+      public void received(JsonObject result) {
+        future.complete(result);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Sends the request and passes the result to the given {@link JsonReaderConsumer} as a stream,
+   * without first decoding it into a JSON tree.
+   */
+  public void requestStreaming(String method, JsonObject params, JsonReaderConsumer consumer) {
+    request(method, params, consumer);
+  }
+
+  /**
+   * Sends the request and decodes the result with the given function as it is read, without first
+   * decoding it into a JSON tree. The returned future completes with the decoded result, or
+   * exceptionally with a {@link SentinelException} if the VM returns a {@link Sentinel}, with an
+   * {@link RPCErrorException} if the request fails, or with the exception thrown by the function.
+   */
+  public <T> CompletableFuture<T> requestStreaming(String method, JsonObject params,
+                                                   final JsonReaderFunction<T> function) {
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    request(method, params, new JsonReaderConsumer() {
+      @Override
+      public void received(String responseType, JsonReader reader) {
+        try {
+          if ("Sentinel".equals(responseType)) {
+            future.completeExceptionally(
+                new SentinelException(new Sentinel(new JsonParser().parse(reader).getAsJsonObject())));
+          } else {
+            future.complete(function.apply(reader));
+          }
+        } catch (IOException | RuntimeException e) {
+          future.completeExceptionally(e);
+        }
+      }
+
+      @Override
+      public void onError(RPCError error) {
+        future.completeExceptionally(new RPCErrorException(error));
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Subscribe to the given stream unless the client is already subscribed to it. The returned
+   * future completes with {@code true} if this call subscribed, so that the caller may cancel the
+   * subscription once done with the stream, or with {@code false} if the subscription already
+   * existed and belongs to someone else.
+   */
+  public CompletableFuture<Boolean> streamListenIfNeededAsync(String streamId) {
+    final CompletableFuture<Boolean> future = new CompletableFuture<>();
+    JsonObject params = new JsonObject();
+    params.addProperty(STREAM_ID, streamId);
+    request(STREAM_LISTEN, params, new SuccessConsumer() {
+      @Override
+      public void onError(RPCError error) {
+        if (error.getCode() == RPCError.STREAM_ALREADY_SUBSCRIBED) {
+          future.complete(false);
+        } else {
+          future.completeExceptionally(new RPCErrorException(error));
+        }
+      }
+
+      @Override
+      public void received(Success response) {
+        future.complete(true);
+      }
+    });
+    return future;
+  }
+
   /**
    * Sends the request and associates the request with the passed {@link Consumer}.
    */
   protected void request(String method, JsonObject params, Consumer consumer) {
 
+    // Track stream subscriptions so that they can be restored on reconnection
+    if ((STREAM_LISTEN.equals(method) || STREAM_CANCEL.equals(method)) && consumer instanceof SuccessConsumer) {
+      consumer = trackSubscription(method, params.get(STREAM_ID).getAsString(), (SuccessConsumer) consumer);
+    }
+
+    // Answer the request from the cache if possible
+    ResponseCache responseCache = this.responseCache;
+    if (responseCache != null && ResponseCache.MODIFYING_METHODS.contains(method) && params.has(ISOLATE_ID)) {
+      responseCache.modified(params.get(ISOLATE_ID).getAsString());
+    }
+    if (responseCache != null && ResponseCache.METHODS.contains(method)
+        && !(consumer instanceof JsonReaderConsumer) && params.has(ISOLATE_ID)) {
+      String key = method + params;
+      ResponseCache.Entry cached = responseCache.get(key);
+      if (cached != null) {
+        forwardResponse(consumer, cached.getType(), cached.getJson());
+        return;
+      }
+      consumer = responseCache.pending(key, params.get(ISOLATE_ID).getAsString(), consumer);
+    }
+
+    // Join an identical request which is already in flight
+    RequestCoalescer coalescer = this.coalescer;
+    if (coalescer != null && coalescer.isCoalesced(method) && !(consumer instanceof JsonReaderConsumer)) {
+      RequestCoalescer.Group group = coalescer.join(method + params, consumer);
+      if (group == null) {
+        return;
+      }
+      consumer = group;
+    }
+
     // Assemble the request
-    String id = Integer.toString(nextId.incrementAndGet());
-    JsonObject request = new JsonObject();
+    int id = nextId.incrementAndGet();
+    JsonObject request = createRequest(id, method, params);
+
+    // Cache the consumer to receive the response
+    if (!pendingRequests.add(id, method, consumer, request, timeoutMillis(method))) {
+      consumer.onError(RPCError.connectionClosed(method));
+      return;
+    }
+
+    // Send the request
+    requestSink.add(request);
+  }
 
+  private static JsonObject createRequest(int id, String method, JsonObject params) {
+    JsonObject request = new JsonObject();
     request.addProperty(JSONRPC, JSONRPC_VERSION);
-    request.addProperty(ID, id);
+    request.addProperty(ID, Integer.toString(id));
     request.addProperty(METHOD, method);
     request.add(PARAMS, params);
+    return request;
+  }
 
-    // Cache the consumer to receive the response
-    synchronized (consumerMapLock) {
-      consumerMap.put(id, consumer);
+  private long timeoutMillis(String method) {
+    Long timeoutMillis = methodTimeoutMillis.get(method);
+    return timeoutMillis != null ? timeoutMillis : requestTimeoutMillis;
+  }
+
+  private SuccessConsumer trackSubscription(final String method, final String streamId,
+                                            final SuccessConsumer consumer) {
+    final boolean listen = STREAM_LISTEN.equals(method);
+    return new SuccessConsumer() {
+      @Override
+      public void onError(RPCError error) {
+        if (listen && error.getCode() == RPCError.STREAM_ALREADY_SUBSCRIBED) {
+          subscribedStreams.add(streamId);
+        } else if (!listen && error.getCode() == RPCError.STREAM_NOT_SUBSCRIBED) {
+          subscribedStreams.remove(streamId);
+        }
+        subscriptionsChanged();
+        consumer.onError(error);
+      }
+
+      @Override
+      public void received(Success response) {
+        if (listen) {
+          subscribedStreams.add(streamId);
+        } else {
+          subscribedStreams.remove(streamId);
+        }
+        subscriptionsChanged();
+        consumer.received(response);
+      }
+    };
+  }
+
+  private void subscriptionsChanged() {
+    ResponseCache responseCache = this.responseCache;
+    if (responseCache != null) {
+      updateResponseCacheTracking(responseCache);
     }
+  }
 
-    // Send the request
-    requestSink.add(request);
+  private void updateResponseCacheTracking(ResponseCache responseCache) {
+    responseCache.setTracking(subscribedStreams.contains(VmService.DEBUG_STREAM_ID),
+        subscribedStreams.contains(VmService.ISOLATE_STREAM_ID));
+  }
+
+  /**
+   * Called when the given connection has closed. If it is the current connection and
+   * reconnection is enabled, start reconnecting, and otherwise fail all pending requests.
+   */
+  private void connectionLost(int connection) {
+    synchronized (connectionLock) {
+      if (connection != connectionCount) {
+        return;
+      }
+    }
+    if (disconnecting || reconnectAttempts <= 0) {
+      connectionClosed();
+      return;
+    }
+
+    // Queue new requests until reconnected. Requests which were sent, including any sent while
+    // switching sinks, are now waiting for a response which will never arrive.
+    final BlockingRequestSink queue = new BlockingRequestSink(requestSink);
+    requestSink = queue;
+    final List<PendingRequests.Entry> unanswered = pendingRequests.removeAll();
+    final long lostNanos = System.nanoTime();
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        reconnect(queue, unanswered, lostNanos);
+      }
+    }, "VM service reconnect");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void reconnect(BlockingRequestSink queue, List<PendingRequests.Entry> unanswered, long lostNanos) {
+    RequestSink sink = null;
+    long delayMillis = reconnectDelayMillis;
+    for (int attempt = 1; attempt <= reconnectAttempts && !disconnecting; ++attempt) {
+      for (ReconnectListener listener : reconnectListeners) {
+        try {
+          listener.reconnecting(attempt);
+        } catch (Exception e) {
+          Logging.getLogger().logError("Exception notifying listener", e);
+        }
+      }
+      try {
+        Thread.sleep(delayMillis);
+      } catch (InterruptedException e) {
+        break;
+      }
+      try {
+        sink = openConnection();
+        break;
+      } catch (IOException e) {
+        Logging.getLogger().logInformation("Failed to reconnect to " + uri + ": " + e.getMessage());
+        delayMillis = Math.min(delayMillis * 2, MAX_RECONNECT_DELAY_MILLIS);
+      }
+    }
+    if (sink == null) {
+      droppedRequestCount.addAndGet(unanswered.size());
+      failRequests(unanswered);
+      connectionClosed();
+      return;
+    }
+
+    // Responses cached before the connection was lost may have been invalidated by events which
+    // were missed.
+    ResponseCache responseCache = this.responseCache;
+    if (responseCache != null) {
+      responseCache.clear();
+    }
+
+    // Restore subscriptions, then send the unanswered requests again, then the queued requests
+    for (String streamId : subscribedStreams) {
+      resubscribe(sink, streamId);
+    }
+    List<PendingRequests.Entry> dropped = new ArrayList<>();
+    int replayedCount = 0;
+    for (PendingRequests.Entry entry : unanswered) {
+      if (isReplayable(entry.getMethod()) && pendingRequests.readd(entry)) {
+        sink.add(entry.getRequest());
+        ++replayedCount;
+      } else {
+        dropped.add(entry);
+      }
+    }
+    droppedRequestCount.addAndGet(dropped.size());
+    failRequests(dropped);
+
+    // If disconnect() was called after the connection was opened, it closed the queue rather than
+    // the new connection, so close that instead, which fails the replayed requests.
+    synchronized (connectionLock) {
+      if (!disconnecting) {
+        requestSink = queue.drainTo(sink);
+        sink = null;
+      }
+    }
+    if (sink != null) {
+      sink.close();
+      return;
+    }
+
+    long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lostNanos);
+    lastReconnectLatencyMillis = latencyMillis;
+    reconnectCount.incrementAndGet();
+    Logging.getLogger().logInformation("Reconnected to " + uri + " in " + latencyMillis + "ms, "
+        + replayedCount + " requests replayed, " + dropped.size() + " dropped");
+    for (ReconnectListener listener : reconnectListeners) {
+      try {
+        listener.reconnected(latencyMillis, replayedCount, dropped.size());
+      } catch (Exception e) {
+        Logging.getLogger().logError("Exception notifying listener", e);
+      }
+    }
+  }
+
+  private void resubscribe(RequestSink sink, final String streamId) {
+    JsonObject params = new JsonObject();
+    params.addProperty(STREAM_ID, streamId);
+    int id = nextId.incrementAndGet();
+    JsonObject request = createRequest(id, STREAM_LISTEN, params);
+    SuccessConsumer consumer = new SuccessConsumer() {
+      @Override
+      public void onError(RPCError error) {
+        Logging.getLogger().logError("Failed to restore subscription to " + streamId + ": " + error.getMessage());
+      }
+
+      @Override
+      public void received(Success response) {
+      }
+    };
+    if (pendingRequests.add(id, STREAM_LISTEN, consumer, request, timeoutMillis(STREAM_LISTEN))) {
+      sink.add(request);
+    }
+  }
+
+  /**
+   * Return {@code true} if a request for the given method can be sent again without a visible
+   * effect when it is not known whether the VM received it.
+   */
+  private static boolean isReplayable(String method) {
+    // getAllocationProfile can reset the accumulators
+    return (method.startsWith("get") && !"getAllocationProfile".equals(method))
+        || method.startsWith("lookup") || STREAM_LISTEN.equals(method) || STREAM_CANCEL.equals(method);
+  }
+
+  private static void failRequests(List<PendingRequests.Entry> entries) {
+    for (PendingRequests.Entry entry : entries) {
+      try {
+        entry.getConsumer().onError(RPCError.connectionClosed(entry.getMethod()));
+      } catch (Exception e) {
+        Logging.getLogger().logError("Exception failing pending request", e);
+      }
+    }
   }
 
   public void connectionOpened() {
-    for (VmServiceListener listener : new ArrayList<>(vmListeners)) {
+    for (VmServiceListener listener : vmListeners) {
       try {
         listener.connectionOpened();
       } catch (Exception e) {
@@ -350,7 +1005,11 @@ abstract class VmServiceBase implements VmServiceConst {
   }
 
   private void forwardEvent(String streamId, Event event) {
-    for (VmServiceListener listener : new ArrayList<>(vmListeners)) {
+    EventPublisher publisher = eventPublishers.get(streamId);
+    if (publisher != null) {
+      publisher.publish(event);
+    }
+    for (VmServiceListener listener : vmListeners) {
       try {
         listener.received(streamId, event);
       } catch (Exception e) {
@@ -360,7 +1019,11 @@ abstract class VmServiceBase implements VmServiceConst {
   }
 
   public void connectionClosed() {
-    for (VmServiceListener listener : new ArrayList<>(vmListeners)) {
+    failRequests(pendingRequests.close());
+    for (EventPublisher publisher : eventPublishers.values()) {
+      publisher.close();
+    }
+    for (VmServiceListener listener : vmListeners) {
       try {
         listener.connectionClosed();
       } catch (Exception e) {
@@ -382,6 +1045,73 @@ abstract class VmServiceBase implements VmServiceConst {
     Logging.getLogger().logError(msg.toString());
   }
 
+  /**
+   * Process a binary message from the VM service. The message consists of a little endian
+   * {@code uint32} data offset, UTF-8 encoded JSON metadata in the same form as a text
+   * notification, and the event's data.
+   */
+  void processBinaryMessage(ByteBuffer message) {
+    int start = message.position();
+    if (message.remaining() < 4) {
+      Logging.getLogger().logError("Binary message too short: " + message.remaining());
+      return;
+    }
+    int dataOffset = message.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(start);
+    if (dataOffset < 4 || dataOffset > message.remaining()) {
+      Logging.getLogger().logError("Binary message has invalid data offset: " + dataOffset);
+      return;
+    }
+
+    // Decode the metadata
+    ByteBuffer metadata = message.duplicate();
+    metadata.position(start + 4).limit(start + dataOffset);
+    RawMessage json;
+    try {
+      json = RawMessage.scan(StandardCharsets.UTF_8.decode(metadata).toString());
+    } catch (Exception e) {
+      Logging.getLogger().logError("Binary message has malformed metadata", e);
+      return;
+    }
+    if (!"streamNotify".equals(json.getString(METHOD))) {
+      Logging.getLogger().logError("Unexpected binary message: " + json);
+      return;
+    }
+    String streamId;
+    Event event;
+    try {
+      JsonObject params = json.parse(PARAMS).getAsJsonObject();
+      streamId = params.get(STREAM_ID).getAsString();
+      event = new Event(params.get(EVENT).getAsJsonObject());
+    } catch (Exception e) {
+      Logging.getLogger().logError("Binary event malformed: " + json, e);
+      return;
+    }
+
+    // Slice the data without copying and forward it
+    ByteBuffer data = message.duplicate();
+    data.position(start + dataOffset);
+    data = data.slice().asReadOnlyBuffer();
+    boolean last = event.getLast();
+    Integer next = binaryChunkIndices.get(streamId);
+    int chunkIndex = next != null ? next : 0;
+    if (last) {
+      binaryChunkIndices.remove(streamId);
+    } else {
+      binaryChunkIndices.put(streamId, chunkIndex + 1);
+    }
+    forwardBinaryEvent(streamId, event, chunkIndex, last, data);
+  }
+
+  private void forwardBinaryEvent(String streamId, Event event, int chunkIndex, boolean last, ByteBuffer data) {
+    for (BinaryEventListener listener : binaryListeners) {
+      try {
+        listener.received(streamId, event, chunkIndex, last, data.duplicate());
+      } catch (Exception e) {
+        Logging.getLogger().logError("Exception processing binary event: " + streamId + ", " + event.getJson(), e);
+      }
+    }
+  }
+
   /**
    * Process the response from the VM service and forward that response to the consumer associated
    * with the response id.
@@ -391,35 +1121,42 @@ abstract class VmServiceBase implements VmServiceConst {
       return;
     }
 
-    // Decode the JSON
-    JsonObject json;
+    // Locate the top level members without decoding them
+    RawMessage message;
     try {
-      json = (JsonObject) new JsonParser().parse(jsonText);
+      message = RawMessage.scan(jsonText);
     } catch (Exception e) {
       Logging.getLogger().logError("Parse message failed: " + jsonText, e);
       return;
     }
 
-    if (json.has("method")) {
-      if (!json.has(PARAMS)) {
-        final String message = "Missing " + PARAMS;
-        Logging.getLogger().logError(message);
+    if (message.has("method")) {
+      if (!message.has(PARAMS)) {
+        final String errMsg = "Missing " + PARAMS;
+        Logging.getLogger().logError(errMsg);
         final JsonObject response = new JsonObject();
         response.addProperty(JSONRPC, JSONRPC_VERSION);
         final JsonObject error = new JsonObject();
         error.addProperty(CODE, INVALID_REQUEST);
-        error.addProperty(MESSAGE, message);
+        error.addProperty(MESSAGE, errMsg);
         response.add(ERROR, error);
         requestSink.add(response);
         return;
       }
+      JsonObject json;
+      try {
+        json = (JsonObject) message.parseAll();
+      } catch (Exception e) {
+        Logging.getLogger().logError("Parse message failed: " + jsonText, e);
+        return;
+      }
       if (json.has("id")) {
         processRequest(json);
       } else {
         processNotification(json);
       }
-    } else if (json.has("result") || json.has("error")) {
-      processResponse(json);
+    } else if (message.has("result") || message.has("error")) {
+      processResponse(message);
     } else {
       Logging.getLogger().logError("Malformed message");
     }
@@ -526,6 +1263,35 @@ abstract class VmServiceBase implements VmServiceConst {
         }
       };
 
+  private static void updateResponseCache(ResponseCache responseCache, Event event) {
+    EventKind kind = event.getKind();
+    if (kind == null || event.getIsolate() == null) {
+      return;
+    }
+    String isolateId = event.getIsolate().getId();
+    switch (kind) {
+      case PauseStart:
+      case PauseExit:
+      case PauseBreakpoint:
+      case PauseInterrupted:
+      case PauseException:
+      case PausePostRequest:
+        responseCache.paused(isolateId);
+        break;
+      case Resume:
+        responseCache.resumed(isolateId);
+        break;
+      case IsolateReload:
+        responseCache.reloaded(isolateId);
+        break;
+      case IsolateExit:
+        responseCache.exited(isolateId);
+        break;
+      default:
+        break;
+    }
+  }
+
   void processNotification(JsonObject json) {
     String method;
     try {
@@ -556,6 +1322,10 @@ abstract class VmServiceBase implements VmServiceConst {
         Logging.getLogger().logError("Event missing " + EVENT, e);
         return;
       }
+      ResponseCache responseCache = this.responseCache;
+      if (responseCache != null) {
+        updateResponseCache(responseCache, event);
+      }
       forwardEvent(streamId, event);
     } else {
       if (!remoteServiceRunners.containsKey(method)) {
@@ -576,61 +1346,102 @@ abstract class VmServiceBase implements VmServiceConst {
     return str.replaceAll("\r\n", " ").replaceAll("\n", " ");
   }
 
-  void processResponse(JsonObject json) {
-    JsonElement idElem = json.get(ID);
-    if (idElem == null) {
-      Logging.getLogger().logError("Response missing " + ID);
-      return;
+  /**
+   * Forward a response to the given consumer, caching it first if the consumer was registered by
+   * the response cache.
+   */
+  private void deliverResponse(Consumer consumer, String responseType, JsonObject result) {
+    if (consumer instanceof ResponseCache.Pending) {
+      ResponseCache.Pending pending = (ResponseCache.Pending) consumer;
+      pending.store(responseType, result);
+      consumer = pending.getConsumer();
     }
+    forwardResponse(consumer, responseType, result);
+  }
 
+  /**
+   * Forward the response to the consumer associated with the response id. The result is only
+   * decoded once a consumer has been found for it, and is never decoded into a JSON tree for a
+   * {@link JsonReaderConsumer}.
+   */
+  void processResponse(RawMessage message) {
     // Get the consumer associated with this response
-    String id;
+    String idText;
     try {
-      id = idElem.getAsString();
+      idText = message.getString(ID);
     } catch (Exception e) {
       Logging.getLogger().logError("Response missing " + ID, e);
       return;
     }
-    Consumer consumer = consumerMap.remove(id);
-    if (consumer == null) {
+    if (idText == null) {
+      Logging.getLogger().logError("Response missing " + ID);
+      return;
+    }
+    int id;
+    try {
+      id = Integer.parseInt(idText);
+    } catch (NumberFormatException e) {
+      Logging.getLogger().logError("No consumer associated with " + ID + ": " + idText);
+      return;
+    }
+    PendingRequests.Entry entry = pendingRequests.remove(id);
+    if (entry == null) {
       Logging.getLogger().logError("No consumer associated with " + ID + ": " + id);
       return;
     }
+    Consumer consumer = entry.getConsumer();
+    if (consumer instanceof JsonReaderConsumer) {
+      if (message.has(RESULT)) {
+        try {
+          ((JsonReaderConsumer) consumer).received(message.getString(RESULT, TYPE), message.reader(RESULT));
+        } catch (Exception e) {
+          Logging.getLogger().logError("Exception processing response for " + entry.getMethod(), e);
+        }
+        return;
+      }
+    }
+
+    // A coalesced request answers every consumer which joined it
+    List<Consumer> consumers = consumer instanceof RequestCoalescer.Group
+        ? ((RequestCoalescer.Group) consumer).complete() : Collections.singletonList(consumer);
 
     // Forward the response if the request was successfully executed
-    JsonElement resultElem = json.get(RESULT);
-    if (resultElem != null) {
+    if (message.has(RESULT)) {
+      String responseType = message.getString(RESULT, TYPE);
       JsonObject result;
       try {
-        result = resultElem.getAsJsonObject();
+        result = message.parse(RESULT).getAsJsonObject();
       } catch (Exception e) {
         Logging.getLogger().logError("Response has invalid " + RESULT, e);
         return;
       }
-      String responseType = "";
-      if (result.has(TYPE)) {
-        responseType = result.get(TYPE).getAsString();
-      }
-      // ServiceExtensionConsumers do not care about the response type.
-      else if (!(consumer instanceof ServiceExtensionConsumer)) {
-        Logging.getLogger().logError("Response missing " + TYPE + ": " + result.toString());
-        return;
+      for (Consumer each : consumers) {
+        if (responseType == null) {
+          // ServiceExtensionConsumers do not care about the response type.
+          if (!(each instanceof ServiceExtensionConsumer)) {
+            Logging.getLogger().logError("Response missing " + TYPE + ": " + result.toString());
+            continue;
+          }
+          forwardResponse(each, "", result);
+        } else {
+          deliverResponse(each, responseType, result);
+        }
       }
-      forwardResponse(consumer, responseType, result);
       return;
     }
 
     // Forward an error if the request failed
-    resultElem = json.get(ERROR);
-    if (resultElem != null) {
+    if (message.has(ERROR)) {
       JsonObject error;
       try {
-        error = resultElem.getAsJsonObject();
+        error = message.parse(ERROR).getAsJsonObject();
       } catch (Exception e) {
-        Logging.getLogger().logError("Response has invalid " + RESULT, e);
+        Logging.getLogger().logError("Response has invalid " + ERROR, e);
         return;
       }
-      consumer.onError(new RPCError(error));
+      for (Consumer each : consumers) {
+        each.onError(new RPCError(error));
+      }
       return;
     }
 
@@ -17,6 +17,10 @@ import org.dartlang.vm.service.element.Event;
 
 /**
  * Interface used by {@link VmService} to notify others of VM events.
+ * <p>
+ * Events are delivered on the thread reading from the VM, so responses and later events wait for
+ * the listener to return. Consumers which may be slow should subscribe to an
+ * {@link EventPublisher} instead.
  */
 public interface VmServiceListener {
   void connectionOpened();
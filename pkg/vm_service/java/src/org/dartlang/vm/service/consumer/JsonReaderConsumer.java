@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.consumer;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+
+/**
+ * A {@link Consumer} which decodes the result itself rather than receiving a fully parsed element.
+ * This avoids building a JSON tree for large responses such as {@code getSourceReport},
+ * {@code getCpuSamples} or {@code getVMTimeline}.
+ */
+public interface JsonReaderConsumer extends Consumer {
+  /**
+   * Called with a reader positioned at the start of the result object. The reader is only valid
+   * for the duration of the call.
+   *
+   * @param responseType the value of the result's {@code type} property, or {@code null}
+   */
+  void received(String responseType, JsonReader reader) throws IOException;
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.coverage;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.dartlang.vm.service.VmService;
+import org.dartlang.vm.service.element.SourceReport;
+import org.dartlang.vm.service.element.TokenPosIndex;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accumulates code coverage from {@code getSourceReport} Coverage reports, from any number of
+ * isolates and runs, and writes it in LCOV format.
+ * <p>
+ * Coverage is held per script URI as two bit sets of positions, those which have been executed
+ * and those which are executable, so merging a report only sets bits and the reports themselves
+ * need not be kept. Positions are line numbers if reports are requested with {@code reportLines},
+ * and token positions otherwise; LCOV output needs lines, so token positions are mapped through a
+ * {@link TokenPosIndex} registered for each script.
+ */
+public class CoverageStore {
+  /**
+   * What the positions in the reports added to a store are.
+   */
+  public enum Positions {
+    LINES,
+    TOKEN_POSITIONS
+  }
+
+  /**
+   * The coverage of one script.
+   */
+  private static class ScriptCoverage {
+    final BitSet hits = new BitSet();
+    final BitSet found = new BitSet();
+  }
+
+  private final Positions positions;
+
+  private final Map<String, ScriptCoverage> scripts = new ConcurrentHashMap<>();
+
+  private final Map<String, TokenPosIndex> tokenPosIndices = new ConcurrentHashMap<>();
+
+  /**
+   * The URIs of the scripts already reported by each isolate, whose libraries need not be compiled
+   * again.
+   */
+  private final Map<String, Set<String>> compiledScripts = new ConcurrentHashMap<>();
+
+  public CoverageStore(Positions positions) {
+    this.positions = positions;
+  }
+
+  public Positions getPositions() {
+    return positions;
+  }
+
+  /**
+   * Request a Coverage report for the given isolate and add it to this store. All libraries are
+   * compiled so that code which has never run is reported, except those this store has already
+   * seen reported by the isolate, so repeated collections only compile newly loaded libraries.
+   * The report is decoded as it is read from the connection.
+   *
+   * @param libraryFilters URI prefixes of the scripts to report, or {@code null} for all scripts
+   */
+  public CompletableFuture<Void> collect(VmService vmService, final String isolateId, List<String> libraryFilters) {
+    final Set<String> compiled = compiledScripts.computeIfAbsent(isolateId, key -> ConcurrentHashMap.newKeySet());
+    JsonObject params = new JsonObject();
+    params.addProperty("isolateId", isolateId);
+    params.add("reports", toJsonArray(Collections.singletonList("Coverage")));
+    params.addProperty("forceCompile", true);
+    params.addProperty("reportLines", positions == Positions.LINES);
+    if (libraryFilters != null) {
+      params.add("libraryFilters", toJsonArray(libraryFilters));
+    }
+    if (!compiled.isEmpty()) {
+      params.add("librariesAlreadyCompiled", toJsonArray(new ArrayList<>(compiled)));
+    }
+    return vmService.requestStreaming("getSourceReport", params, reader -> {
+      compiled.addAll(add(reader));
+      return null;
+    });
+  }
+
+  /**
+   * Add the coverage in the given report.
+   *
+   * @return the URIs of the scripts in the report
+   */
+  public Set<String> add(SourceReport report) {
+    return add(report.getJson());
+  }
+
+  /**
+   * Add the coverage in the JSON of the given {@code SourceReport}.
+   *
+   * @return the URIs of the scripts in the report
+   */
+  public Set<String> add(JsonObject json) {
+    ReportCoverage report = new ReportCoverage();
+    JsonElement ranges = json.get("ranges");
+    if (ranges != null && ranges.isJsonArray()) {
+      for (JsonElement element : ranges.getAsJsonArray()) {
+        JsonObject range = element.getAsJsonObject();
+        JsonElement coverage = range.get("coverage");
+        if (coverage == null || !coverage.isJsonObject()) {
+          continue;
+        }
+        int scriptIndex = range.get("scriptIndex").getAsInt();
+        JsonElement hits = coverage.getAsJsonObject().get("hits");
+        if (hits != null && hits.isJsonArray()) {
+          for (JsonElement pos : hits.getAsJsonArray()) {
+            report.add(scriptIndex, pos.getAsInt(), true);
+          }
+        }
+        JsonElement misses = coverage.getAsJsonObject().get("misses");
+        if (misses != null && misses.isJsonArray()) {
+          for (JsonElement pos : misses.getAsJsonArray()) {
+            report.add(scriptIndex, pos.getAsInt(), false);
+          }
+        }
+      }
+    }
+    JsonElement scripts = json.get("scripts");
+    if (scripts != null && scripts.isJsonArray()) {
+      for (JsonElement script : scripts.getAsJsonArray()) {
+        report.scriptUris.add(script.getAsJsonObject().get("uri").getAsString());
+      }
+    }
+    return report.fold();
+  }
+
+  /**
+   * Add the coverage in the {@code SourceReport} read from the given reader, positioned at the
+   * start of the report. No JSON tree is built for the report.
+   *
+   * @return the URIs of the scripts in the report
+   */
+  public Set<String> add(JsonReader reader) throws IOException {
+    ReportCoverage report = new ReportCoverage();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("ranges".equals(name)) {
+        reader.beginArray();
+        while (reader.hasNext()) {
+          readRange(reader, report);
+        }
+        reader.endArray();
+      } else if ("scripts".equals(name)) {
+        reader.beginArray();
+        while (reader.hasNext()) {
+          String uri = null;
+          reader.beginObject();
+          while (reader.hasNext()) {
+            if ("uri".equals(reader.nextName())) {
+              uri = reader.nextString();
+            } else {
+              reader.skipValue();
+            }
+          }
+          reader.endObject();
+          report.scriptUris.add(uri);
+        }
+        reader.endArray();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return report.fold();
+  }
+
+  /**
+   * Register the index used to map the token positions of the given script to lines when writing
+   * LCOV. Only needed for stores of {@link Positions#TOKEN_POSITIONS}.
+   */
+  public void setTokenPosIndex(String scriptUri, TokenPosIndex index) {
+    tokenPosIndices.put(scriptUri, index);
+  }
+
+  /**
+   * Return the URIs of the scripts with coverage.
+   */
+  public Set<String> getScriptUris() {
+    return Collections.unmodifiableSet(scripts.keySet());
+  }
+
+  /**
+   * Return {@code true} if the given position of the given script has been executed.
+   */
+  public boolean isHit(String scriptUri, int position) {
+    ScriptCoverage coverage = scripts.get(scriptUri);
+    if (coverage == null) {
+      return false;
+    }
+    synchronized (coverage) {
+      return coverage.hits.get(position);
+    }
+  }
+
+  /**
+   * Return the number of executed positions in the given script.
+   */
+  public int getHitCount(String scriptUri) {
+    ScriptCoverage coverage = scripts.get(scriptUri);
+    if (coverage == null) {
+      return 0;
+    }
+    synchronized (coverage) {
+      return coverage.hits.cardinality();
+    }
+  }
+
+  /**
+   * Return the number of executable positions in the given script.
+   */
+  public int getFoundCount(String scriptUri) {
+    ScriptCoverage coverage = scripts.get(scriptUri);
+    if (coverage == null) {
+      return 0;
+    }
+    synchronized (coverage) {
+      return coverage.found.cardinality();
+    }
+  }
+
+  /**
+   * Write the coverage in LCOV format, one record per script in order of URI. {@code file:} URIs
+   * are written as paths. The coverage of each script is converted to lines and written before the
+   * next is examined. Scripts whose token positions cannot be mapped to lines are omitted.
+   */
+  public void writeLcov(Writer out) throws IOException {
+    List<String> uris = new ArrayList<>(scripts.keySet());
+    Collections.sort(uris);
+    for (String uri : uris) {
+      BitSet hits;
+      BitSet found;
+      ScriptCoverage coverage = scripts.get(uri);
+      synchronized (coverage) {
+        hits = (BitSet) coverage.hits.clone();
+        found = (BitSet) coverage.found.clone();
+      }
+      if (positions == Positions.TOKEN_POSITIONS) {
+        TokenPosIndex index = tokenPosIndices.get(uri);
+        if (index == null) {
+          continue;
+        }
+        hits = toLines(hits, index);
+        found = toLines(found, index);
+        found.or(hits);
+      }
+      out.write("SF:");
+      out.write(toPath(uri));
+      out.write('\n');
+      for (int line = found.nextSetBit(0); line >= 0; line = found.nextSetBit(line + 1)) {
+        out.write("DA:");
+        out.write(Integer.toString(line));
+        out.write(hits.get(line) ? ",1\n" : ",0\n");
+      }
+      out.write("LF:");
+      out.write(Integer.toString(found.cardinality()));
+      out.write("\nLH:");
+      out.write(Integer.toString(hits.cardinality()));
+      out.write("\nend_of_record\n");
+    }
+    out.flush();
+  }
+
+  private void readRange(JsonReader reader, ReportCoverage report) throws IOException {
+    int scriptIndex = -1;
+    int[] hits = null;
+    int[] misses = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("scriptIndex".equals(name)) {
+        scriptIndex = reader.nextInt();
+      } else if ("coverage".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+        reader.beginObject();
+        while (reader.hasNext()) {
+          String member = reader.nextName();
+          if ("hits".equals(member)) {
+            hits = readInts(reader);
+          } else if ("misses".equals(member)) {
+            misses = readInts(reader);
+          } else {
+            reader.skipValue();
+          }
+        }
+        reader.endObject();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (hits != null) {
+      for (int pos : hits) {
+        report.add(scriptIndex, pos, true);
+      }
+    }
+    if (misses != null) {
+      for (int pos : misses) {
+        report.add(scriptIndex, pos, false);
+      }
+    }
+  }
+
+  private static int[] readInts(JsonReader reader) throws IOException {
+    int[] values = new int[16];
+    int count = 0;
+    reader.beginArray();
+    while (reader.hasNext()) {
+      if (count == values.length) {
+        values = Arrays.copyOf(values, count * 2);
+      }
+      values[count++] = reader.nextInt();
+    }
+    reader.endArray();
+    return Arrays.copyOf(values, count);
+  }
+
+  private static BitSet toLines(BitSet tokenPositions, TokenPosIndex index) {
+    BitSet lines = new BitSet();
+    for (int pos = tokenPositions.nextSetBit(0); pos >= 0; pos = tokenPositions.nextSetBit(pos + 1)) {
+      int line = index.getLineAtOrBefore(pos);
+      if (line > 0) {
+        lines.set(line);
+      }
+    }
+    return lines;
+  }
+
+  private static String toPath(String uri) {
+    if (uri.startsWith("file:")) {
+      try {
+        return Paths.get(new URI(uri)).toString();
+      } catch (Exception e) {
+        // Fall through and write the URI
+      }
+    }
+    return uri;
+  }
+
+  private static JsonArray toJsonArray(List<String> values) {
+    JsonArray array = new JsonArray();
+    for (String value : values) {
+      array.add(new JsonPrimitive(value));
+    }
+    return array;
+  }
+
+  /**
+   * The coverage of one report by script index, held until the script URIs are known, since a
+   * report's scripts may follow its ranges.
+   */
+  private class ReportCoverage {
+    final List<String> scriptUris = new ArrayList<>();
+    final Map<Integer, ScriptCoverage> coverage = new HashMap<>();
+
+    void add(int scriptIndex, int pos, boolean hit) {
+      if (scriptIndex < 0 || pos < 0) {
+        return;
+      }
+      ScriptCoverage script = coverage.get(scriptIndex);
+      if (script == null) {
+        script = new ScriptCoverage();
+        coverage.put(scriptIndex, script);
+      }
+      script.found.set(pos);
+      if (hit) {
+        script.hits.set(pos);
+      }
+    }
+
+    Set<String> fold() {
+      for (Map.Entry<Integer, ScriptCoverage> entry : coverage.entrySet()) {
+        int scriptIndex = entry.getKey();
+        if (scriptIndex >= scriptUris.size() || scriptUris.get(scriptIndex) == null) {
+          continue;
+        }
+        ScriptCoverage target = scripts.computeIfAbsent(scriptUris.get(scriptIndex), uri -> new ScriptCoverage());
+        synchronized (target) {
+          target.hits.or(entry.getValue().hits);
+          target.found.or(entry.getValue().found);
+        }
+      }
+      return new HashSet<>(scriptUris);
+    }
+  }
+}
@@ -6,14 +6,30 @@ import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 /**
  * Superclass for all observatory elements.
  */
 public class Element {
+  /**
+   * Cached in place of a child which is {@code null}.
+   */
+  private static final Object NO_CHILD = new Object();
+
   protected final JsonObject json;
 
+  /**
+   * The child views returned by accessors, keyed by member name, and other views derived from the
+   * JSON such as a script's {@link TokenPosIndex}, or {@code null} if none have been requested.
+   * Guarded by this.
+   */
+  private Map<String, Object> children;
+
   public Element(JsonObject json) {
     this.json = json;
   }
@@ -49,6 +65,34 @@ public class Element {
     return json;
   }
 
+  /**
+   * Return the view of the given member built by the given factory the first time it was
+   * requested, so that repeated calls to an accessor return the same {@link Element} or
+   * {@link ElementList} rather than wrapping the JSON again. The JSON backing this element must not
+   * be modified once views of it have been requested.
+   */
+  @SuppressWarnings("unchecked")
+  <T> T child(String memberName, Supplier<T> factory) {
+    synchronized (this) {
+      Object cached = children != null ? children.get(memberName) : null;
+      if (cached != null) {
+        return cached == NO_CHILD ? null : (T) cached;
+      }
+    }
+    T child = factory.get();
+    synchronized (this) {
+      if (children == null) {
+        children = new HashMap<>(4);
+      }
+      Object cached = children.putIfAbsent(memberName, child != null ? child : NO_CHILD);
+      if (cached != null) {
+        // Another thread built the view first
+        return cached == NO_CHILD ? null : (T) cached;
+      }
+    }
+    return child;
+  }
+
   /**
    * Return a specific JSON member as a list of integers.
    */
@@ -79,6 +123,53 @@ public class Element {
     return result;
   }
 
+  /**
+   * Return a specific JSON member as an array of integers, or {@code null} if there is no such
+   * member.
+   */
+  int[] getIntArray(String memberName) {
+    JsonArray array = json.getAsJsonArray(memberName);
+    return array != null ? jsonArrayToIntArray(array) : null;
+  }
+
+  /**
+   * Return a specific JSON member as an array of arrays of integers, or {@code null} if there is no
+   * such member.
+   */
+  int[][] getIntArrayArray(String memberName) {
+    JsonArray array = json.getAsJsonArray(memberName);
+    if (array == null) {
+      return null;
+    }
+    int size = array.size();
+    int[][] result = new int[size][];
+    for (int index = 0; index < size; ++index) {
+      result[index] = jsonArrayToIntArray(array.get(index).getAsJsonArray());
+    }
+    return result;
+  }
+
+  /**
+   * Return a specific JSON member as a stream of integers which are decoded as they are consumed,
+   * or an empty stream if there is no such member.
+   */
+  IntStream getIntStream(String memberName) {
+    final JsonArray array = json.getAsJsonArray(memberName);
+    if (array == null) {
+      return IntStream.empty();
+    }
+    return IntStream.range(0, array.size()).map(index -> array.get(index).getAsInt());
+  }
+
+  private static int[] jsonArrayToIntArray(JsonArray array) {
+    int size = array.size();
+    int[] result = new int[size];
+    for (int index = 0; index < size; ++index) {
+      result[index] = array.get(index).getAsInt();
+    }
+    return result;
+  }
+
   private List<Integer> jsonArrayToListInt(JsonArray array) {
     int size = array.size();
     List<Integer> result = new ArrayList<>();
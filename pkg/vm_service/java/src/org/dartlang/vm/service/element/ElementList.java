@@ -8,18 +8,41 @@ import java.util.Iterator;
 /**
  * Simple wrapper around a {@link JsonArray} which lazily converts {@link JsonObject} elements to
  * subclasses of {@link Element}. Subclasses need only implement {@link #basicGet(JsonArray, int)}
- * to return an {@link Element} subclass for the {@link JsonObject} at a given index.
+ * to return an {@link Element} subclass for the {@link JsonObject} at a given index. Converted
+ * elements are kept, so repeated traversals return the same objects.
  */
 public abstract class ElementList<T> implements Iterable<T> {
 
   private final JsonArray array;
 
+  /**
+   * The converted elements, or {@code null} if none have been requested. An element may be
+   * converted twice by concurrent calls, but only one of the results is kept.
+   */
+  private volatile Object[] elements;
+
   public ElementList(JsonArray array) {
     this.array = array;
   }
 
+  @SuppressWarnings("unchecked")
   public T get(int index) {
-    return basicGet(array, index);
+    Object[] elements = this.elements;
+    if (elements == null) {
+      synchronized (this) {
+        elements = this.elements;
+        if (elements == null) {
+          elements = new Object[array.size()];
+          this.elements = elements;
+        }
+      }
+    }
+    Object element = elements[index];
+    if (element == null) {
+      element = basicGet(array, index);
+      elements[index] = element;
+    }
+    return (T) element;
   }
 
   public boolean isEmpty() {
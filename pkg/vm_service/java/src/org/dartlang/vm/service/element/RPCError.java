@@ -59,6 +59,46 @@ public class RPCError extends Element implements VmServiceConst {
    */
   public static final int UNEXPECTED_RESPONSE = 5;
 
+  /**
+   * The response code used by the client when a request is abandoned because no response was
+   * received before its deadline.
+   */
+  public static final int REQUEST_TIMED_OUT = 6;
+
+  /**
+   * The response code used by the client when a request is abandoned because the connection to the
+   * VM was closed before a response was received.
+   */
+  public static final int CONNECTION_CLOSED = 7;
+
+  /**
+   * The response code used by the VM when the client is already subscribed to a stream.
+   */
+  public static final int STREAM_ALREADY_SUBSCRIBED = 103;
+
+  /**
+   * The response code used by the VM when the client is not subscribed to a stream.
+   */
+  public static final int STREAM_NOT_SUBSCRIBED = 104;
+
+  public static RPCError connectionClosed(String method) {
+    return clientError(CONNECTION_CLOSED, "Connection closed before " + method + " completed");
+  }
+
+  public static RPCError timedOut(String method, long timeoutMillis) {
+    return clientError(REQUEST_TIMED_OUT, "No response to " + method + " within " + timeoutMillis + "ms");
+  }
+
+  private static RPCError clientError(int code, String errMsg) {
+    JsonObject json = new JsonObject();
+    json.addProperty("code", code);
+    json.addProperty("message", errMsg);
+    JsonObject data = new JsonObject();
+    data.addProperty("details", errMsg);
+    json.add("data", data);
+    return new RPCError(json);
+  }
+
   public static RPCError unexpected(String expectedType, Response response) {
     String errMsg = "Expected type " + expectedType + " but received " + response.getType();
     if (response instanceof Sentinel) {
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.element;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+
+import java.util.Arrays;
+
+/**
+ * An index of a {@link Script}'s {@code tokenPosTable} which maps token positions to lines and
+ * columns and back using binary search over sorted primitive arrays.
+ */
+public class TokenPosIndex {
+  /**
+   * Token positions in ascending order, and the line and column of each.
+   */
+  private final int[] tokenPositions;
+  private final int[] tokenLines;
+  private final int[] tokenColumns;
+
+  /**
+   * The distinct lines in ascending order. The positions on {@code lines[i]} are
+   * {@code linePositions[lineStarts[i]]} up to {@code linePositions[lineStarts[i + 1]]}, in
+   * ascending order of their columns in {@code lineColumns}.
+   */
+  private final int[] lines;
+  private final int[] lineStarts;
+  private final int[] linePositions;
+  private final int[] lineColumns;
+
+  private TokenPosIndex(int[] tokenPositions, int[] tokenLines, int[] tokenColumns, int[] lines,
+                        int[] lineStarts, int[] linePositions, int[] lineColumns) {
+    this.tokenPositions = tokenPositions;
+    this.tokenLines = tokenLines;
+    this.tokenColumns = tokenColumns;
+    this.lines = lines;
+    this.lineStarts = lineStarts;
+    this.linePositions = linePositions;
+    this.lineColumns = lineColumns;
+  }
+
+  /**
+   * Return the index of the given script's token position table, or {@code null} if the script
+   * has no table because its source is not available. The index is built once for each
+   * {@link Script} and kept with it, so callers which hold a script, or its index, across requests
+   * must request it again after the isolate is reloaded.
+   */
+  public static TokenPosIndex of(final Script script) {
+    return script.child("tokenPosIndex", () -> {
+      JsonElement table = script.getJson().get("tokenPosTable");
+      return table != null && table.isJsonArray() ? build(table.getAsJsonArray()) : null;
+    });
+  }
+
+  /**
+   * Build an index from a table of the form {@code [[line, (tokenPos, column)*]*]}.
+   */
+  public static TokenPosIndex build(JsonArray table) {
+    int count = 0;
+    for (JsonElement row : table) {
+      count += (row.getAsJsonArray().size() - 1) / 2;
+    }
+
+    // Sort (line, column, tokenPos) entries by line and column, and (tokenPos, entry) by tokenPos
+    long[] byLine = new long[count];
+    long[] byTokenPos = new long[count];
+    int[] entryLines = new int[count];
+    int[] entryColumns = new int[count];
+    int[] entryPositions = new int[count];
+    int entry = 0;
+    for (JsonElement row : table) {
+      JsonArray values = row.getAsJsonArray();
+      int line = values.get(0).getAsInt();
+      for (int i = 1; i + 1 < values.size(); i += 2) {
+        entryLines[entry] = line;
+        entryPositions[entry] = values.get(i).getAsInt();
+        entryColumns[entry] = values.get(i + 1).getAsInt();
+        byLine[entry] = ((long) line << 32) | (entryColumns[entry] & 0xFFFFFFFFL);
+        byTokenPos[entry] = ((long) entryPositions[entry] << 32) | entry;
+        ++entry;
+      }
+    }
+    Arrays.sort(byTokenPos);
+
+    int[] tokenPositions = new int[count];
+    int[] tokenLines = new int[count];
+    int[] tokenColumns = new int[count];
+    for (int i = 0; i < count; ++i) {
+      int e = (int) byTokenPos[i];
+      tokenPositions[i] = entryPositions[e];
+      tokenLines[i] = entryLines[e];
+      tokenColumns[i] = entryColumns[e];
+    }
+
+    // Rows are normally already ordered by line and column, in which case no sort is needed
+    int[] order = new int[count];
+    boolean sorted = true;
+    for (int i = 0; i < count; ++i) {
+      order[i] = i;
+      sorted &= i == 0 || byLine[i - 1] <= byLine[i];
+    }
+    if (!sorted) {
+      // Sort by line, then sort the entries of each line by column
+      for (int i = 0; i < count; ++i) {
+        byLine[i] = ((long) entryLines[i] << 32) | i;
+      }
+      Arrays.sort(byLine);
+      for (int start = 0, end; start < count; start = end) {
+        int line = entryLines[(int) byLine[start]];
+        for (end = start; end < count && entryLines[(int) byLine[end]] == line; ++end) {
+          int e = (int) byLine[end];
+          byLine[end] = ((long) entryColumns[e] << 32) | e;
+        }
+        Arrays.sort(byLine, start, end);
+      }
+      for (int i = 0; i < count; ++i) {
+        order[i] = (int) byLine[i];
+      }
+    }
+
+    int lineCount = 0;
+    for (int i = 0; i < count; ++i) {
+      if (i == 0 || entryLines[order[i]] != entryLines[order[i - 1]]) {
+        ++lineCount;
+      }
+    }
+    int[] lines = new int[lineCount];
+    int[] lineStarts = new int[lineCount + 1];
+    int[] linePositions = new int[count];
+    int[] lineColumns = new int[count];
+    int lineIndex = -1;
+    for (int i = 0; i < count; ++i) {
+      int e = order[i];
+      if (i == 0 || entryLines[e] != entryLines[order[i - 1]]) {
+        lines[++lineIndex] = entryLines[e];
+        lineStarts[lineIndex] = i;
+      }
+      linePositions[i] = entryPositions[e];
+      lineColumns[i] = entryColumns[e];
+    }
+    lineStarts[lineCount] = count;
+    return new TokenPosIndex(tokenPositions, tokenLines, tokenColumns, lines, lineStarts,
+        linePositions, lineColumns);
+  }
+
+  /**
+   * Return the column of the given token position, or {@code -1} if it is not in the table.
+   */
+  public int getColumn(int tokenPos) {
+    int index = Arrays.binarySearch(tokenPositions, tokenPos);
+    return index >= 0 ? tokenColumns[index] : -1;
+  }
+
+  /**
+   * Return the line of the given token position, or {@code -1} if it is not in the table.
+   */
+  public int getLine(int tokenPos) {
+    int index = Arrays.binarySearch(tokenPositions, tokenPos);
+    return index >= 0 ? tokenLines[index] : -1;
+  }
+
+  /**
+   * Return the line of the nearest token position at or before the given one, or {@code -1} if
+   * there is none. This maps positions which are not in the table, such as those of synthetic
+   * code, to a line.
+   */
+  public int getLineAtOrBefore(int tokenPos) {
+    int index = Arrays.binarySearch(tokenPositions, tokenPos);
+    if (index < 0) {
+      index = -index - 2;
+    }
+    return index >= 0 ? tokenLines[index] : -1;
+  }
+
+  /**
+   * Return the first token position on the given line, or {@code -1} if the line has none.
+   */
+  public int getTokenPos(int line) {
+    int lineIndex = Arrays.binarySearch(lines, line);
+    return lineIndex >= 0 ? linePositions[lineStarts[lineIndex]] : -1;
+  }
+
+  /**
+   * Return the first token position on the given line at or after the given column, or
+   * {@code -1} if there is none.
+   */
+  public int getTokenPos(int line, int column) {
+    int lineIndex = Arrays.binarySearch(lines, line);
+    if (lineIndex < 0) {
+      return -1;
+    }
+    int start = lineStarts[lineIndex];
+    int end = lineStarts[lineIndex + 1];
+    int index = Arrays.binarySearch(lineColumns, start, end, column);
+    if (index < 0) {
+      index = -index - 1;
+    } else {
+      // Several positions may share a column, so return the first of them
+      while (index > start && lineColumns[index - 1] == column) {
+        --index;
+      }
+    }
+    return index < end ? linePositions[index] : -1;
+  }
+
+  /**
+   * Return the number of token positions in the table.
+   */
+  public int size() {
+    return tokenPositions.length;
+  }
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.heap;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import org.dartlang.vm.service.VmService;
+import org.dartlang.vm.service.element.AllocationProfile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A time series of the live instances and bytes of each class of an isolate, sampled from
+ * {@code getAllocationProfile}.
+ * <p>
+ * Only the most recent {@code window} samples are kept, in ring buffers of primitives indexed by
+ * class and sample, so memory is proportional to the number of classes times the window however
+ * many times the profile is polled. Classes are identified by dense indices assigned in the order
+ * in which they are first seen. A class which is missing from a sample has no live instances in
+ * it.
+ */
+public class AllocationSampler {
+  /**
+   * A class whose live size grew in every sample of the window.
+   */
+  public static class LeakSuspect {
+    private final String className;
+    private final String classId;
+    private final long instanceGrowth;
+    private final long byteGrowth;
+    private final double bytesPerSecond;
+
+    LeakSuspect(String className, String classId, long instanceGrowth, long byteGrowth, double bytesPerSecond) {
+      this.className = className;
+      this.classId = classId;
+      this.instanceGrowth = instanceGrowth;
+      this.byteGrowth = byteGrowth;
+      this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public String getClassName() {
+      return className;
+    }
+
+    /**
+     * The id of the class's {@code @Class} reference.
+     */
+    public String getClassId() {
+      return classId;
+    }
+
+    /**
+     * The change in the number of live instances over the window.
+     */
+    public long getInstanceGrowth() {
+      return instanceGrowth;
+    }
+
+    /**
+     * The change in the number of live bytes over the window.
+     */
+    public long getByteGrowth() {
+      return byteGrowth;
+    }
+
+    /**
+     * The least squares rate of growth of the live bytes over the window.
+     */
+    public double getBytesPerSecond() {
+      return bytesPerSecond;
+    }
+  }
+
+  private final VmService vmService;
+  private final String isolateId;
+  private final int window;
+  private final boolean gc;
+
+  // Guarded by this
+  private final Map<String, Integer> classIndices = new HashMap<>();
+  private String[] classIds = new String[256];
+  private String[] classNames = new String[256];
+  private int classCount;
+
+  /**
+   * The samples, with the value of class {@code c} in ring slot {@code s} at
+   * {@code c * window + s}.
+   */
+  private long[] instances;
+  private long[] bytes;
+  private final long[] timestamps;
+
+  /**
+   * The ring slot of the newest sample, and the number of samples held.
+   */
+  private int newest = -1;
+  private int size;
+
+  /**
+   * @param window the number of samples to keep
+   * @param gc     {@code true} to collect garbage before each sample, so that it reflects only
+   *               reachable objects
+   */
+  public AllocationSampler(VmService vmService, String isolateId, int window, boolean gc) {
+    if (window < 2) {
+      throw new IllegalArgumentException("window must be at least 2: " + window);
+    }
+    this.vmService = vmService;
+    this.isolateId = isolateId;
+    this.window = window;
+    this.gc = gc;
+    this.instances = new long[classIds.length * window];
+    this.bytes = new long[classIds.length * window];
+    this.timestamps = new long[window];
+  }
+
+  /**
+   * Request the allocation profile and add it as the newest sample. The profile is decoded as it
+   * is read from the connection.
+   */
+  public CompletableFuture<Void> poll() {
+    JsonObject params = new JsonObject();
+    params.addProperty("isolateId", isolateId);
+    if (gc) {
+      params.addProperty("gc", true);
+    }
+    return vmService.requestStreaming("getAllocationProfile", params, reader -> {
+      add(System.currentTimeMillis(), reader);
+      return null;
+    });
+  }
+
+  /**
+   * Add the given profile, obtained at the given time, as the newest sample.
+   */
+  public synchronized void add(long timeMillis, AllocationProfile profile) {
+    beginSample(timeMillis);
+    JsonElement members = profile.getJson().get("members");
+    if (members != null && members.isJsonArray()) {
+      for (JsonElement element : members.getAsJsonArray()) {
+        JsonObject member = element.getAsJsonObject();
+        JsonObject classRef = member.getAsJsonObject("class");
+        record(classRef.get("id").getAsString(), classRef.has("name") ? classRef.get("name").getAsString() : null,
+            member.get("instancesCurrent").getAsLong(), member.get("bytesCurrent").getAsLong());
+      }
+    }
+  }
+
+  /**
+   * Add the {@code AllocationProfile} read from the given reader, obtained at the given time, as
+   * the newest sample.
+   */
+  synchronized void add(long timeMillis, JsonReader reader) throws IOException {
+    beginSample(timeMillis);
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (!"members".equals(reader.nextName())) {
+        reader.skipValue();
+        continue;
+      }
+      reader.beginArray();
+      while (reader.hasNext()) {
+        String classId = null;
+        String className = null;
+        long instanceCount = 0;
+        long byteCount = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+          switch (reader.nextName()) {
+            case "class":
+              reader.beginObject();
+              while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("id".equals(name)) {
+                  classId = reader.nextString();
+                } else if ("name".equals(name)) {
+                  className = reader.nextString();
+                } else {
+                  reader.skipValue();
+                }
+              }
+              reader.endObject();
+              break;
+            case "instancesCurrent":
+              instanceCount = reader.nextLong();
+              break;
+            case "bytesCurrent":
+              byteCount = reader.nextLong();
+              break;
+            default:
+              reader.skipValue();
+          }
+        }
+        reader.endObject();
+        if (classId != null) {
+          record(classId, className, instanceCount, byteCount);
+        }
+      }
+      reader.endArray();
+    }
+    reader.endObject();
+  }
+
+  /**
+   * Return the number of samples held, at most the window.
+   */
+  public synchronized int getSampleCount() {
+    return size;
+  }
+
+  /**
+   * Return the number of classes seen.
+   */
+  public synchronized int getClassCount() {
+    return classCount;
+  }
+
+  /**
+   * Return the index of the class with the given {@code @Class} id, or {@code -1} if it has not
+   * been seen.
+   */
+  public synchronized int getClassIndex(String classId) {
+    Integer index = classIndices.get(classId);
+    return index != null ? index : -1;
+  }
+
+  public synchronized String getClassId(int classIndex) {
+    checkClass(classIndex);
+    return classIds[classIndex];
+  }
+
+  public synchronized String getClassName(int classIndex) {
+    checkClass(classIndex);
+    return classNames[classIndex];
+  }
+
+  /**
+   * Return the time in milliseconds since the epoch of the sample with the given age, where the
+   * newest sample has age {@code 0}.
+   */
+  public synchronized long getTimestamp(int age) {
+    return timestamps[slot(age)];
+  }
+
+  /**
+   * Return the number of live instances of the given class in the sample with the given age.
+   */
+  public synchronized long getInstances(int classIndex, int age) {
+    checkClass(classIndex);
+    return instances[classIndex * window + slot(age)];
+  }
+
+  /**
+   * Return the number of live bytes of the given class in the sample with the given age.
+   */
+  public synchronized long getBytes(int classIndex, int age) {
+    checkClass(classIndex);
+    return bytes[classIndex * window + slot(age)];
+  }
+
+  /**
+   * Return the change in the number of live instances of the given class since the previous
+   * sample, or {@code 0} if there is only one sample.
+   */
+  public synchronized long getInstanceDelta(int classIndex) {
+    return size < 2 ? 0 : getInstances(classIndex, 0) - getInstances(classIndex, 1);
+  }
+
+  /**
+   * Return the change in the number of live bytes of the given class since the previous sample,
+   * or {@code 0} if there is only one sample.
+   */
+  public synchronized long getByteDelta(int classIndex) {
+    return size < 2 ? 0 : getBytes(classIndex, 0) - getBytes(classIndex, 1);
+  }
+
+  /**
+   * Return the least squares rate of change of the live bytes of the given class over the samples
+   * held, in bytes per second.
+   */
+  public synchronized double getByteSlope(int classIndex) {
+    checkClass(classIndex);
+    return slope(bytes, classIndex * window);
+  }
+
+  /**
+   * Return the least squares rate of change of the live instances of the given class over the
+   * samples held, in instances per second.
+   */
+  public synchronized double getInstanceSlope(int classIndex) {
+    checkClass(classIndex);
+    return slope(instances, classIndex * window);
+  }
+
+  /**
+   * Return the classes whose live bytes did not decrease between any two consecutive samples of a
+   * full window and grew by at least {@code minByteGrowth} over it, in decreasing order of growth
+   * rate. Returns nothing until the window is full.
+   */
+  public synchronized List<LeakSuspect> getLeakSuspects(long minByteGrowth) {
+    List<LeakSuspect> suspects = new ArrayList<>();
+    if (size < window) {
+      return suspects;
+    }
+    for (int classIndex = 0; classIndex < classCount; ++classIndex) {
+      int base = classIndex * window;
+      boolean growing = true;
+      for (int age = size - 1; age > 0 && growing; --age) {
+        growing = bytes[base + slot(age - 1)] >= bytes[base + slot(age)];
+      }
+      long byteGrowth = bytes[base + slot(0)] - bytes[base + slot(size - 1)];
+      if (growing && byteGrowth > 0 && byteGrowth >= minByteGrowth) {
+        long instanceGrowth = instances[base + slot(0)] - instances[base + slot(size - 1)];
+        suspects.add(new LeakSuspect(classNames[classIndex], classIds[classIndex], instanceGrowth,
+            byteGrowth, slope(bytes, base)));
+      }
+    }
+    Collections.sort(suspects, new Comparator<LeakSuspect>() {
+      @Override
+      public int compare(LeakSuspect s1, LeakSuspect s2) {
+        return Double.compare(s2.bytesPerSecond, s1.bytesPerSecond);
+      }
+    });
+    return suspects;
+  }
+
+  private void beginSample(long timeMillis) {
+    newest = (newest + 1) % window;
+    if (size < window) {
+      ++size;
+    }
+    timestamps[newest] = timeMillis;
+    for (int classIndex = 0; classIndex < classCount; ++classIndex) {
+      instances[classIndex * window + newest] = 0;
+      bytes[classIndex * window + newest] = 0;
+    }
+  }
+
+  private void record(String classId, String className, long instanceCount, long byteCount) {
+    Integer index = classIndices.get(classId);
+    if (index == null) {
+      if (classCount == classIds.length) {
+        int capacity = classCount * 2;
+        classIds = Arrays.copyOf(classIds, capacity);
+        classNames = Arrays.copyOf(classNames, capacity);
+        instances = Arrays.copyOf(instances, capacity * window);
+        bytes = Arrays.copyOf(bytes, capacity * window);
+      }
+      index = classCount++;
+      classIndices.put(classId, index);
+      classIds[index] = classId;
+    }
+    if (className != null) {
+      classNames[index] = className;
+    }
+    instances[index * window + newest] += instanceCount;
+    bytes[index * window + newest] += byteCount;
+  }
+
+  private double slope(long[] values, int base) {
+    if (size < 2) {
+      return 0;
+    }
+    double t0 = timestamps[slot(size - 1)];
+    double sumT = 0;
+    double sumV = 0;
+    for (int age = 0; age < size; ++age) {
+      sumT += (timestamps[slot(age)] - t0) / 1000.0;
+      sumV += values[base + slot(age)];
+    }
+    double meanT = sumT / size;
+    double meanV = sumV / size;
+    double covariance = 0;
+    double variance = 0;
+    for (int age = 0; age < size; ++age) {
+      double t = (timestamps[slot(age)] - t0) / 1000.0 - meanT;
+      covariance += t * (values[base + slot(age)] - meanV);
+      variance += t * t;
+    }
+    return variance == 0 ? 0 : covariance / variance;
+  }
+
+  private int slot(int age) {
+    if (age < 0 || age >= size) {
+      throw new IndexOutOfBoundsException("Sample age " + age + ", size " + size);
+    }
+    return (newest - age + window) % window;
+  }
+
+  private void checkClass(int classIndex) {
+    if (classIndex < 0 || classIndex >= classCount) {
+      throw new IndexOutOfBoundsException("Class index " + classIndex + ", count " + classCount);
+    }
+  }
+}
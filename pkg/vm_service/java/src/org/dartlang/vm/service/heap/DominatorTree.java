@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.heap;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The dominator tree of a {@link HeapSnapshotGraph} rooted at {@link HeapSnapshotGraph#ROOT}, with
+ * the retained size of every object and class.
+ * <p>
+ * Dominators are computed with the semi-NCA variant of the Lengauer-Tarjan algorithm, using only
+ * primitive arrays. Retained sizes are then accumulated in parallel on the common fork/join pool:
+ * the objects dominated by an object form a contiguous range of the dominator tree's preorder, so
+ * an object's retained size is the difference of two prefix sums over that order.
+ */
+public class DominatorTree {
+  private final HeapSnapshotGraph graph;
+
+  /**
+   * The immediate dominator of each object, or {@code 0} for the root and unreachable objects.
+   */
+  private final int[] dominators;
+
+  /**
+   * The retained size of each object in bytes, or {@code 0} for unreachable objects.
+   */
+  private final long[] retainedSizes;
+
+  /**
+   * The retained size of each class in bytes.
+   */
+  private final long[] classRetainedSizes;
+
+  private final int reachableCount;
+
+  private DominatorTree(HeapSnapshotGraph graph, int[] dominators, long[] retainedSizes,
+                        long[] classRetainedSizes, int reachableCount) {
+    this.graph = graph;
+    this.dominators = dominators;
+    this.retainedSizes = retainedSizes;
+    this.classRetainedSizes = classRetainedSizes;
+    this.reachableCount = reachableCount;
+  }
+
+  /**
+   * Compute the dominator tree of the given snapshot.
+   */
+  public static DominatorTree compute(HeapSnapshotGraph graph) {
+    final int objectCount = graph.objectCount;
+    final int[] firstReferences = graph.firstReferences;
+    final int[] references = graph.references;
+
+    // Number the reachable objects in depth first preorder. From here on objects are identified
+    // by their preorder number, in which the root is 0 and every object follows its parent.
+    final int[] order = new int[objectCount + 1];
+    final int[] vertex = new int[objectCount];
+    final int[] parent = new int[objectCount];
+    int n = 0;
+    {
+      int[] stackNode = new int[objectCount];
+      int[] stackEdge = new int[objectCount];
+      order[HeapSnapshotGraph.ROOT] = n + 1;
+      vertex[n] = HeapSnapshotGraph.ROOT;
+      parent[n] = -1;
+      ++n;
+      stackNode[0] = HeapSnapshotGraph.ROOT;
+      stackEdge[0] = firstReferences[HeapSnapshotGraph.ROOT];
+      int sp = 1;
+      while (sp > 0) {
+        int v = stackNode[sp - 1];
+        int edge = stackEdge[sp - 1];
+        if (edge == firstReferences[v + 1]) {
+          --sp;
+          continue;
+        }
+        stackEdge[sp - 1] = edge + 1;
+        int w = references[edge];
+        if (w != 0 && order[w] == 0) {
+          order[w] = n + 1;
+          vertex[n] = w;
+          parent[n] = order[v] - 1;
+          ++n;
+          stackNode[sp] = w;
+          stackEdge[sp] = firstReferences[w];
+          ++sp;
+        }
+      }
+    }
+
+    // Collect the predecessors of each reachable object in compressed sparse row layout
+    final int[] firstPredecessors = new int[n + 1];
+    for (int i = 0; i < n; ++i) {
+      int v = vertex[i];
+      for (int edge = firstReferences[v]; edge < firstReferences[v + 1]; ++edge) {
+        int w = references[edge];
+        if (w != 0) {
+          ++firstPredecessors[order[w] - 1];
+        }
+      }
+    }
+    for (int i = 1; i <= n; ++i) {
+      firstPredecessors[i] += firstPredecessors[i - 1];
+    }
+    final int[] predecessors = new int[firstPredecessors[n]];
+    for (int i = 0; i < n; ++i) {
+      int v = vertex[i];
+      for (int edge = firstReferences[v]; edge < firstReferences[v + 1]; ++edge) {
+        int w = references[edge];
+        if (w != 0) {
+          predecessors[--firstPredecessors[order[w] - 1]] = i;
+        }
+      }
+    }
+
+    // Compute semidominators, evaluating paths in the link forest with path compression
+    final int[] semi = new int[n];
+    final int[] label = new int[n];
+    final int[] ancestor = new int[n];
+    final int[] path = new int[n];
+    for (int i = 0; i < n; ++i) {
+      semi[i] = i;
+      label[i] = i;
+      ancestor[i] = -1;
+    }
+    for (int w = n - 1; w > 0; --w) {
+      for (int edge = firstPredecessors[w]; edge < firstPredecessors[w + 1]; ++edge) {
+        int u = eval(predecessors[edge], semi, label, ancestor, path);
+        if (semi[u] < semi[w]) {
+          semi[w] = semi[u];
+        }
+      }
+      ancestor[w] = parent[w];
+    }
+
+    // The immediate dominator is the nearest common ancestor of the parent and semidominator.
+    // Processing in preorder means the dominators of all ancestors are already final.
+    final int[] idom = parent;
+    for (int w = 1; w < n; ++w) {
+      int d = idom[w];
+      while (d > semi[w]) {
+        d = idom[d];
+      }
+      idom[w] = d;
+    }
+
+    // Lay out the dominator tree in preorder: subtree sizes first, then the start of each subtree
+    final int[] subtreeSizes = label;
+    Arrays.fill(subtreeSizes, 0, n, 1);
+    for (int w = n - 1; w > 0; --w) {
+      subtreeSizes[idom[w]] += subtreeSizes[w];
+    }
+    final int[] start = ancestor;
+    final int[] nextChildStart = semi;
+    start[0] = 0;
+    nextChildStart[0] = 1;
+    for (int w = 1; w < n; ++w) {
+      int d = idom[w];
+      start[w] = nextChildStart[d];
+      nextChildStart[d] += subtreeSizes[w];
+      nextChildStart[w] = start[w] + 1;
+    }
+
+    // Sum the shallow sizes over the dominator tree preorder, in parallel
+    final int[] shallowSizes = graph.shallowSizes;
+    final long[] sums = new long[n + 1];
+    final int reachable = n;
+    IntStream.range(0, reachable).parallel().forEach(w -> sums[start[w] + 1] = shallowSizes[vertex[w]]);
+    Arrays.parallelPrefix(sums, Long::sum);
+
+    // Retained size is the sum of the dominated subtree, in parallel
+    final int[] dominators = new int[objectCount + 1];
+    final long[] retainedSizes = new long[objectCount + 1];
+    IntStream.range(0, reachable).parallel().forEach(w -> {
+      int v = vertex[w];
+      dominators[v] = w == 0 ? 0 : vertex[idom[w]];
+      retainedSizes[v] = sums[start[w] + subtreeSizes[w]] - sums[start[w]];
+    });
+
+    // A class retains the objects dominated by its outermost instances. Walking the dominator tree
+    // in preorder, an instance is outermost unless it lies within the subtree of the last outermost
+    // instance of the same class.
+    final int[] byStart = path;
+    for (int w = 0; w < n; ++w) {
+      byStart[start[w]] = w;
+    }
+    final int[] classIds = graph.classIds;
+    final long[] classRetainedSizes = new long[graph.getClassCount() + 1];
+    final int[] coveredUntil = new int[classRetainedSizes.length];
+    for (int position = 0; position < n; ++position) {
+      int w = byStart[position];
+      int classId = classIds[vertex[w]];
+      if (position >= coveredUntil[classId]) {
+        classRetainedSizes[classId] += retainedSizes[vertex[w]];
+        coveredUntil[classId] = position + subtreeSizes[w];
+      }
+    }
+
+    return new DominatorTree(graph, dominators, retainedSizes, classRetainedSizes, reachable);
+  }
+
+  /**
+   * Return the vertex with the smallest semidominator on the path from {@code v} to the root of
+   * its tree in the link forest, excluding that root.
+   */
+  private static int eval(int v, int[] semi, int[] label, int[] ancestor, int[] path) {
+    if (ancestor[v] == -1) {
+      return v;
+    }
+    // Compress the path iteratively, starting nearest the root
+    int length = 0;
+    int u = v;
+    while (ancestor[ancestor[u]] != -1) {
+      path[length++] = u;
+      u = ancestor[u];
+    }
+    while (length > 0) {
+      u = path[--length];
+      int a = ancestor[u];
+      if (semi[label[a]] < semi[label[u]]) {
+        label[u] = label[a];
+      }
+      ancestor[u] = ancestor[a];
+    }
+    return label[v];
+  }
+
+  /**
+   * Return the retained size of the given class in bytes: the sum of the retained sizes of its
+   * instances, counting instances dominated by other instances of the class only once.
+   */
+  public long getClassRetainedSize(int classId) {
+    return classRetainedSizes[classId];
+  }
+
+  /**
+   * Return the immediate dominator of the given object, or {@code 0} if the object is the root or
+   * is unreachable.
+   */
+  public int getDominator(int objectId) {
+    return dominators[objectId];
+  }
+
+  public HeapSnapshotGraph getGraph() {
+    return graph;
+  }
+
+  /**
+   * The number of objects reachable from the root, including the root.
+   */
+  public int getReachableCount() {
+    return reachableCount;
+  }
+
+  /**
+   * Return the retained size of the given object in bytes: the memory which would be freed if the
+   * object were freed. This is {@code 0} for unreachable objects.
+   */
+  public long getRetainedSize(int objectId) {
+    return retainedSizes[objectId];
+  }
+
+  /**
+   * Return {@code true} if the given object is reachable from the root.
+   */
+  public boolean isReachable(int objectId) {
+    return objectId == HeapSnapshotGraph.ROOT || dominators[objectId] != 0;
+  }
+}
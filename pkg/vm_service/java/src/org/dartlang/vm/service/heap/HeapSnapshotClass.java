@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.heap;
+
+/**
+ * A class captured in a heap snapshot.
+ */
+public class HeapSnapshotClass {
+  private final int classId;
+  private final String name;
+  private final String libraryName;
+  private final String libraryUri;
+  private final String[] fieldNames;
+  private final int[] fieldIndices;
+
+  HeapSnapshotClass(int classId, String name, String libraryName, String libraryUri,
+                    String[] fieldNames, int[] fieldIndices) {
+    this.classId = classId;
+    this.name = name;
+    this.libraryName = libraryName;
+    this.libraryUri = libraryUri;
+    this.fieldNames = fieldNames;
+    this.fieldIndices = fieldIndices;
+  }
+
+  /**
+   * The 1-origin index of this class in the snapshot, or {@code 0} for the sentinel class.
+   */
+  public int getClassId() {
+    return classId;
+  }
+
+  /**
+   * The number of fields described for this class.
+   */
+  public int getFieldCount() {
+    return fieldNames.length;
+  }
+
+  /**
+   * The 0-origin index into an object's references of the given field.
+   */
+  public int getFieldIndex(int field) {
+    return fieldIndices[field];
+  }
+
+  public String getFieldName(int field) {
+    return fieldNames[field];
+  }
+
+  /**
+   * The name of the class's library.
+   */
+  public String getLibraryName() {
+    return libraryName;
+  }
+
+  /**
+   * The URI of the class's library.
+   */
+  public String getLibraryUri() {
+    return libraryUri;
+  }
+
+  /**
+   * The simple (not qualified) name of the class.
+   */
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public String toString() {
+    return libraryUri.isEmpty() ? name : libraryUri + "::" + name;
+  }
+}
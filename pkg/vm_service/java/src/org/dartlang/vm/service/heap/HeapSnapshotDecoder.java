@@ -0,0 +1,731 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.heap;
+
+import org.dartlang.vm.service.BinaryEventListener;
+import org.dartlang.vm.service.RPCErrorException;
+import org.dartlang.vm.service.ReconnectListener;
+import org.dartlang.vm.service.VmService;
+import org.dartlang.vm.service.VmServiceListener;
+import org.dartlang.vm.service.element.Event;
+import org.dartlang.vm.service.element.RPCError;
+import org.dartlang.vm.service.logging.Logging;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Decodes the {@code SnapshotGraph} described by runtime/vm/service/heap_snapshot.md into a
+ * {@link HeapSnapshotGraph}.
+ * <p>
+ * The VM may split a snapshot into chunks at any byte offset, so the decoder is a resumable state
+ * machine: each call to {@link #add(ByteBuffer)} consumes the whole chunk, remembering any value
+ * which is only partially present, and nothing is buffered except the bytes of strings which are
+ * kept. Non-reference object data is skipped.
+ */
+public class HeapSnapshotDecoder {
+  private static final byte[] MAGIC = "dartheap".getBytes(StandardCharsets.US_ASCII);
+
+  private static final int NO_DATA = 0;
+  private static final int NULL_DATA = 1;
+  private static final int BOOL_DATA = 2;
+  private static final int INT_DATA = 3;
+  private static final int DOUBLE_DATA = 4;
+  private static final int LATIN1_DATA = 5;
+  private static final int UTF16_DATA = 6;
+  private static final int LENGTH_DATA = 7;
+  private static final int NAME_DATA = 8;
+
+  private enum State {
+    MAGIC, FLAGS, NAME, SHALLOW_SIZE, CAPACITY, EXTERNAL_SIZE, CLASS_COUNT,
+    CLASS_FLAGS, CLASS_NAME, CLASS_LIBRARY_NAME, CLASS_LIBRARY_URI, CLASS_RESERVED, FIELD_COUNT,
+    FIELD_FLAGS, FIELD_INDEX, FIELD_NAME, FIELD_RESERVED,
+    REFERENCE_COUNT, OBJECT_COUNT, OBJECT_CLASS_ID, OBJECT_SHALLOW_SIZE, DATA_TAG, DATA_VALUE,
+    DATA_SIGNED_VALUE, DATA_STRING_LENGTH, DATA_TRUNCATED_LENGTH, DATA_SKIP,
+    DATA_NAME, OBJECT_REFERENCE_COUNT, OBJECT_REFERENCES,
+    EXTERNAL_COUNT, EXTERNAL_OBJECT, EXTERNAL_SIZE_VALUE, EXTERNAL_NAME, IDENTITY_HASH_CODE,
+    DONE
+  }
+
+  private State state = State.MAGIC;
+
+  // Partially read values
+  private long partial;
+  private int partialShift;
+  private long value;
+  private int stringLength = -1;
+  private int stringRead;
+  private byte[] stringBytes = new byte[64];
+  private String string;
+  private long skipRemaining;
+
+  // Header
+  private long flags;
+  private String name;
+  private long shallowSize;
+  private long capacity;
+  private long externalSize;
+
+  // Classes
+  private HeapSnapshotClass[] classes;
+  private int classId;
+  private String className;
+  private String classLibraryName;
+  private String classLibraryUri;
+  private String[] fieldNames;
+  private int[] fieldIndices;
+  private int field;
+
+  // Objects
+  private int objectCount;
+  private int objectId;
+  private int referencesRemaining;
+  private int nextReference;
+  private int[] classIds;
+  private int[] shallowSizes;
+  private int[] firstReferences;
+  private int[] references;
+  private int[] identityHashCodes;
+
+  // External properties
+  private int[] externalObjects;
+  private long[] externalSizes;
+  private String[] externalNames;
+  private int externalIndex;
+
+  /**
+   * The last snapshot requested through each connection which has not yet completed.
+   */
+  private static final Map<VmService, CompletableFuture<HeapSnapshotGraph>> lastRequests = new WeakHashMap<>();
+
+  /**
+   * Request a heap snapshot of the given isolate and decode it as it arrives. The returned future
+   * completes once the last chunk has been decoded, or exceptionally with an
+   * {@link RPCErrorException} for {@link RPCError#CONNECTION_CLOSED} if the connection is closed or
+   * lost before then, since the VM does not send the rest of the snapshot on a new connection.
+   * <p>
+   * The chunks of concurrent snapshots cannot be told apart, so snapshots requested through the
+   * same connection are requested one at a time. Chunks for other isolates, and the rest of any
+   * snapshot already being sent when the request is made, are ignored. A snapshot of the same
+   * isolate requested by another client at the same time may still corrupt the result.
+   * <p>
+   * This calls {@code streamListen} for the {@link VmService#HEAPSNAPSHOT_STREAM_ID} stream if no
+   * one is listening yet, and in that case cancels the subscription once the snapshot is complete.
+   */
+  public static CompletableFuture<HeapSnapshotGraph> request(final VmService vmService, final String isolateId) {
+    final CompletableFuture<HeapSnapshotGraph> future;
+    synchronized (lastRequests) {
+      CompletableFuture<HeapSnapshotGraph> previous = lastRequests.get(vmService);
+      if (previous == null) {
+        future = requestNow(vmService, isolateId);
+      } else {
+        future = previous.handle((graph, e) -> null).thenCompose(v -> requestNow(vmService, isolateId));
+      }
+      lastRequests.put(vmService, future);
+    }
+    future.whenComplete((graph, e) -> {
+      synchronized (lastRequests) {
+        lastRequests.remove(vmService, future);
+      }
+    });
+    return future;
+  }
+
+  private static CompletableFuture<HeapSnapshotGraph> requestNow(final VmService vmService, final String isolateId) {
+    final CompletableFuture<HeapSnapshotGraph> future = new CompletableFuture<>();
+    final HeapSnapshotDecoder decoder = new HeapSnapshotDecoder();
+    final BinaryEventListener listener = new BinaryEventListener() {
+      /**
+       * {@code true} once the first chunk of a snapshot of the isolate has been received. Only
+       * accessed on the thread reading from the VM.
+       */
+      private boolean started;
+
+      @Override
+      public void received(String streamId, Event event, int chunkIndex, boolean last, ByteBuffer data) {
+        if (!VmService.HEAPSNAPSHOT_STREAM_ID.equals(streamId) || future.isDone()
+            || event.getIsolate() == null || !isolateId.equals(event.getIsolate().getId())) {
+          return;
+        }
+        if (!started) {
+          if (chunkIndex != 0) {
+            // The rest of a snapshot requested before this one
+            return;
+          }
+          started = true;
+        }
+        try {
+          decoder.add(data);
+          if (last) {
+            future.complete(decoder.finish());
+          }
+        } catch (RuntimeException e) {
+          future.completeExceptionally(e);
+        }
+      }
+    };
+    final ConnectionListener connectionListener = new ConnectionListener(future);
+    vmService.addBinaryEventListener(listener);
+    vmService.addVmServiceListener(connectionListener);
+    vmService.addReconnectListener(connectionListener);
+    final CompletableFuture<Boolean> subscription =
+        vmService.streamListenIfNeededAsync(VmService.HEAPSNAPSHOT_STREAM_ID);
+    subscription.thenCompose(subscribed -> vmService.requestHeapSnapshotAsync(isolateId)).whenComplete((success, e) -> {
+      if (e != null) {
+        future.completeExceptionally(e);
+      }
+    });
+    future.whenComplete((graph, e) -> {
+      vmService.removeBinaryEventListener(listener);
+      vmService.removeVmServiceListener(connectionListener);
+      vmService.removeReconnectListener(connectionListener);
+      subscription.thenAccept(subscribed -> {
+        if (subscribed) {
+          vmService.streamCancelAsync(VmService.HEAPSNAPSHOT_STREAM_ID).exceptionally(ex -> {
+            Logging.getLogger().logError("Failed to cancel " + VmService.HEAPSNAPSHOT_STREAM_ID + " stream", ex);
+            return null;
+          });
+        }
+      });
+    });
+    return future;
+  }
+
+  /**
+   * Fails a snapshot request when the connection through which its chunks arrive is closed or lost.
+   */
+  private static class ConnectionListener implements VmServiceListener, ReconnectListener {
+    private final CompletableFuture<HeapSnapshotGraph> future;
+
+    ConnectionListener(CompletableFuture<HeapSnapshotGraph> future) {
+      this.future = future;
+    }
+
+    @Override
+    public void connectionOpened() {
+    }
+
+    @Override
+    public void received(String streamId, Event event) {
+    }
+
+    @Override
+    public void connectionClosed() {
+      fail();
+    }
+
+    @Override
+    public void reconnecting(int attempt) {
+      fail();
+    }
+
+    @Override
+    public void reconnected(long latencyMillis, int replayedCount, int droppedCount) {
+    }
+
+    private void fail() {
+      future.completeExceptionally(new RPCErrorException(RPCError.connectionClosed("requestHeapSnapshot")));
+    }
+  }
+
+  /**
+   * Decode the given chunk of the snapshot. All of the remaining bytes of the chunk are consumed.
+   *
+   * @throws IllegalArgumentException if the snapshot is malformed
+   */
+  public void add(ByteBuffer in) {
+    while (in.hasRemaining()) {
+      switch (state) {
+        case MAGIC:
+          while (in.hasRemaining() && stringRead < MAGIC.length) {
+            if (in.get() != MAGIC[stringRead++]) {
+              throw new IllegalArgumentException("Not a heap snapshot");
+            }
+          }
+          if (stringRead < MAGIC.length) {
+            return;
+          }
+          stringRead = 0;
+          state = State.FLAGS;
+          break;
+        case FLAGS:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          flags = value;
+          state = State.NAME;
+          break;
+        case NAME:
+          if (!readString(in, true)) {
+            return;
+          }
+          name = string;
+          state = State.SHALLOW_SIZE;
+          break;
+        case SHALLOW_SIZE:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          shallowSize = value;
+          state = State.CAPACITY;
+          break;
+        case CAPACITY:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          capacity = value;
+          state = State.EXTERNAL_SIZE;
+          break;
+        case EXTERNAL_SIZE:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          externalSize = value;
+          state = State.CLASS_COUNT;
+          break;
+        case CLASS_COUNT:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          classes = new HeapSnapshotClass[checkedCount(value, "class count") + 1];
+          classes[0] = new HeapSnapshotClass(0, "Sentinel", "", "", new String[0], new int[0]);
+          classId = 1;
+          state = classId < classes.length ? State.CLASS_FLAGS : State.REFERENCE_COUNT;
+          break;
+        case CLASS_FLAGS:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          state = State.CLASS_NAME;
+          break;
+        case CLASS_NAME:
+          if (!readString(in, true)) {
+            return;
+          }
+          className = string;
+          state = State.CLASS_LIBRARY_NAME;
+          break;
+        case CLASS_LIBRARY_NAME:
+          if (!readString(in, true)) {
+            return;
+          }
+          classLibraryName = string;
+          state = State.CLASS_LIBRARY_URI;
+          break;
+        case CLASS_LIBRARY_URI:
+          if (!readString(in, true)) {
+            return;
+          }
+          classLibraryUri = string;
+          state = State.CLASS_RESERVED;
+          break;
+        case CLASS_RESERVED:
+          if (!readString(in, false)) {
+            return;
+          }
+          state = State.FIELD_COUNT;
+          break;
+        case FIELD_COUNT:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          int fieldCount = checkedCount(value, "field count");
+          fieldNames = new String[fieldCount];
+          fieldIndices = new int[fieldCount];
+          field = 0;
+          if (fieldCount > 0) {
+            state = State.FIELD_FLAGS;
+          } else {
+            endClass();
+          }
+          break;
+        case FIELD_FLAGS:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          state = State.FIELD_INDEX;
+          break;
+        case FIELD_INDEX:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          fieldIndices[field] = checkedCount(value, "field index");
+          state = State.FIELD_NAME;
+          break;
+        case FIELD_NAME:
+          if (!readString(in, true)) {
+            return;
+          }
+          fieldNames[field] = string;
+          state = State.FIELD_RESERVED;
+          break;
+        case FIELD_RESERVED:
+          if (!readString(in, false)) {
+            return;
+          }
+          if (++field < fieldNames.length) {
+            state = State.FIELD_FLAGS;
+          } else {
+            endClass();
+          }
+          break;
+        case REFERENCE_COUNT:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          references = new int[checkedCount(value, "reference count")];
+          state = State.OBJECT_COUNT;
+          break;
+        case OBJECT_COUNT:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          objectCount = checkedCount(value, "object count");
+          if (objectCount > Integer.MAX_VALUE - 2) {
+            throw new IllegalArgumentException("Invalid object count: " + objectCount);
+          }
+          classIds = new int[objectCount + 1];
+          shallowSizes = new int[objectCount + 1];
+          firstReferences = new int[objectCount + 2];
+          identityHashCodes = new int[objectCount + 1];
+          objectId = 1;
+          state = objectCount > 0 ? State.OBJECT_CLASS_ID : State.EXTERNAL_COUNT;
+          break;
+        case OBJECT_CLASS_ID:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          if (value >= classes.length) {
+            throw new IllegalArgumentException("Invalid class id " + value + " for object " + objectId);
+          }
+          classIds[objectId] = (int) value;
+          state = State.OBJECT_SHALLOW_SIZE;
+          break;
+        case OBJECT_SHALLOW_SIZE:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          // No single object in the Dart heap comes close to 2 GB.
+          shallowSizes[objectId] = (int) Math.min(value, Integer.MAX_VALUE);
+          state = State.DATA_TAG;
+          break;
+        case DATA_TAG:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          state = dataState(value);
+          break;
+        case DATA_VALUE:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          state = State.OBJECT_REFERENCE_COUNT;
+          break;
+        case DATA_SIGNED_VALUE:
+          if (!readSigned(in)) {
+            return;
+          }
+          state = State.OBJECT_REFERENCE_COUNT;
+          break;
+        case DATA_STRING_LENGTH:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          state = State.DATA_TRUNCATED_LENGTH;
+          break;
+        case DATA_TRUNCATED_LENGTH:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          // Only the truncated code units are present, and skipRemaining holds their width.
+          skipRemaining *= value;
+          state = State.DATA_SKIP;
+          break;
+        case DATA_SKIP:
+          int count = (int) Math.min(in.remaining(), skipRemaining);
+          in.position(in.position() + count);
+          skipRemaining -= count;
+          if (skipRemaining > 0) {
+            return;
+          }
+          state = State.OBJECT_REFERENCE_COUNT;
+          break;
+        case DATA_NAME:
+          if (!readString(in, false)) {
+            return;
+          }
+          state = State.OBJECT_REFERENCE_COUNT;
+          break;
+        case OBJECT_REFERENCE_COUNT:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          firstReferences[objectId] = nextReference;
+          referencesRemaining = checkedCount(value, "reference count");
+          if (nextReference + (long) referencesRemaining > references.length) {
+            // The header's reference count is only required to be an upper bound.
+            references = Arrays.copyOf(references,
+                checkedCount(Math.max(nextReference + (long) referencesRemaining, references.length * 3L / 2), "reference count"));
+          }
+          state = State.OBJECT_REFERENCES;
+          break;
+        case OBJECT_REFERENCES:
+          if (!readReferences(in)) {
+            return;
+          }
+          if (++objectId <= objectCount) {
+            state = State.OBJECT_CLASS_ID;
+          } else {
+            firstReferences[objectCount + 1] = nextReference;
+            state = State.EXTERNAL_COUNT;
+          }
+          break;
+        case EXTERNAL_COUNT:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          int externalCount = checkedCount(value, "external property count");
+          externalObjects = new int[externalCount];
+          externalSizes = new long[externalCount];
+          externalNames = new String[externalCount];
+          externalIndex = 0;
+          objectId = 1;
+          state = externalCount > 0 ? State.EXTERNAL_OBJECT : State.IDENTITY_HASH_CODE;
+          break;
+        case EXTERNAL_OBJECT:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          externalObjects[externalIndex] = checkedObjectId(value);
+          state = State.EXTERNAL_SIZE_VALUE;
+          break;
+        case EXTERNAL_SIZE_VALUE:
+          if (!readUnsigned(in)) {
+            return;
+          }
+          externalSizes[externalIndex] = value;
+          state = State.EXTERNAL_NAME;
+          break;
+        case EXTERNAL_NAME:
+          if (!readString(in, true)) {
+            return;
+          }
+          externalNames[externalIndex] = string;
+          state = ++externalIndex < externalObjects.length ? State.EXTERNAL_OBJECT : State.IDENTITY_HASH_CODE;
+          break;
+        case IDENTITY_HASH_CODE:
+          if (objectId > objectCount) {
+            state = State.DONE;
+            break;
+          }
+          if (!readUnsigned(in)) {
+            return;
+          }
+          identityHashCodes[objectId++] = (int) value;
+          break;
+        case DONE:
+          throw new IllegalArgumentException("Unexpected data after the end of the heap snapshot");
+      }
+    }
+  }
+
+  /**
+   * Return the decoded snapshot once all chunks have been added.
+   *
+   * @throws IllegalStateException if the snapshot is incomplete
+   */
+  public HeapSnapshotGraph finish() {
+    boolean hasHashCodes = state == State.DONE || (state == State.IDENTITY_HASH_CODE && objectId > objectCount);
+    // Older VMs do not send identity hash codes
+    boolean noHashCodes = state == State.IDENTITY_HASH_CODE && objectId == 1 && partialShift == 0;
+    if (!hasHashCodes && !noHashCodes) {
+      throw new IllegalStateException("Incomplete heap snapshot");
+    }
+    state = State.DONE;
+    if (references.length != nextReference) {
+      references = Arrays.copyOf(references, nextReference);
+    }
+    return new HeapSnapshotGraph(name, flags, shallowSize, capacity, externalSize, classes,
+        objectCount, classIds, shallowSizes, firstReferences, references, identityHashCodes,
+        externalObjects, externalSizes, externalNames);
+  }
+
+  private void endClass() {
+    classes[classId] = new HeapSnapshotClass(classId, className, classLibraryName, classLibraryUri,
+        fieldNames, fieldIndices);
+    state = ++classId < classes.length ? State.CLASS_FLAGS : State.REFERENCE_COUNT;
+  }
+
+  /**
+   * Return the state which reads the non-reference data with the given tag, setting
+   * {@link #skipRemaining} to the width of a code unit for strings.
+   */
+  private State dataState(long tag) {
+    switch ((int) tag) {
+      case NO_DATA:
+      case NULL_DATA:
+        return State.OBJECT_REFERENCE_COUNT;
+      case BOOL_DATA:
+      case LENGTH_DATA:
+        return State.DATA_VALUE;
+      case INT_DATA:
+        return State.DATA_SIGNED_VALUE;
+      case DOUBLE_DATA:
+        skipRemaining = 8;
+        return State.DATA_SKIP;
+      case LATIN1_DATA:
+        skipRemaining = 1;
+        return State.DATA_STRING_LENGTH;
+      case UTF16_DATA:
+        skipRemaining = 2;
+        return State.DATA_STRING_LENGTH;
+      case NAME_DATA:
+        return State.DATA_NAME;
+      default:
+        throw new IllegalArgumentException("Invalid data tag " + tag + " for object " + objectId);
+    }
+  }
+
+  /**
+   * Read the remaining references of the current object, returning {@code false} if the input
+   * ended first.
+   */
+  private boolean readReferences(ByteBuffer in) {
+    int[] references = this.references;
+    int next = nextReference;
+    int remaining = referencesRemaining;
+    try {
+      while (remaining > 0) {
+        long id;
+        if (partialShift == 0 && in.remaining() >= 10) {
+          // Fast path: the whole value is in this chunk
+          int pos = in.position();
+          byte b = in.get(pos++);
+          id = b & 0x7f;
+          int shift = 7;
+          while (b < 0) {
+            b = in.get(pos++);
+            id |= (long) (b & 0x7f) << shift;
+            shift += 7;
+          }
+          in.position(pos);
+        } else if (readUnsigned(in)) {
+          id = value;
+        } else {
+          return false;
+        }
+        references[next++] = checkedObjectId(id);
+        --remaining;
+      }
+      return true;
+    } finally {
+      nextReference = next;
+      referencesRemaining = remaining;
+    }
+  }
+
+  /**
+   * Read an unsigned LEB128 value into {@link #value}, returning {@code false} if the input ended
+   * first.
+   */
+  private boolean readUnsigned(ByteBuffer in) {
+    while (in.hasRemaining()) {
+      byte b = in.get();
+      if (partialShift < 64) {
+        partial |= (long) (b & 0x7f) << partialShift;
+      }
+      partialShift += 7;
+      if (b >= 0) {
+        value = partial;
+        partial = 0;
+        partialShift = 0;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Read a signed LEB128 value into {@link #value}, returning {@code false} if the input ended
+   * first.
+   */
+  private boolean readSigned(ByteBuffer in) {
+    while (in.hasRemaining()) {
+      byte b = in.get();
+      if (partialShift < 64) {
+        partial |= (long) (b & 0x7f) << partialShift;
+      }
+      partialShift += 7;
+      if (b >= 0) {
+        if ((b & 0x40) != 0 && partialShift < 64) {
+          partial |= -1L << partialShift;
+        }
+        value = partial;
+        partial = 0;
+        partialShift = 0;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Read a length prefixed UTF-8 string into {@link #string}, or skip it if {@code keep} is
+   * {@code false}, returning {@code false} if the input ended first.
+   */
+  private boolean readString(ByteBuffer in, boolean keep) {
+    if (stringLength < 0) {
+      if (!readUnsigned(in)) {
+        return false;
+      }
+      stringLength = checkedCount(value, "string length");
+      stringRead = 0;
+      if (keep && stringBytes.length < stringLength) {
+        stringBytes = new byte[stringLength];
+      }
+    }
+    int count = Math.min(in.remaining(), stringLength - stringRead);
+    if (keep) {
+      in.get(stringBytes, stringRead, count);
+    } else {
+      in.position(in.position() + count);
+    }
+    stringRead += count;
+    if (stringRead < stringLength) {
+      return false;
+    }
+    string = keep ? new String(stringBytes, 0, stringLength, StandardCharsets.UTF_8) : null;
+    stringLength = -1;
+    stringRead = 0;
+    return true;
+  }
+
+  private int checkedObjectId(long id) {
+    if (id > objectCount || id < 0) {
+      throw new IllegalArgumentException("Invalid object id " + id + " referenced by object " + objectId);
+    }
+    return (int) id;
+  }
+
+  private static int checkedCount(long count, String what) {
+    if (count < 0 || count > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid " + what + ": " + count);
+    }
+    return (int) count;
+  }
+}
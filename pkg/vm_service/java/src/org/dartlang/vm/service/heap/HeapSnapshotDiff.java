@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.heap;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * The difference between two heap snapshots of the same isolate group, taken at different times.
+ * <p>
+ * Objects are matched across the snapshots by identity hash code and class. Objects without an
+ * identity hash code cannot be matched and are reported as freed in the earlier snapshot and new in
+ * the later one. Matching uses an open addressing table of object ids probed by hash code, so the
+ * only per object storage is a few primitive arrays. Snapshots include unreachable objects, which
+ * are compared like any other.
+ */
+public class HeapSnapshotDiff {
+  /**
+   * How an object changed between the snapshots.
+   */
+  public enum Change {
+    /**
+     * The object is only in the later snapshot.
+     */
+    NEW,
+
+    /**
+     * The object is only in the earlier snapshot.
+     */
+    FREED,
+
+    /**
+     * The object is in both snapshots.
+     */
+    SURVIVING
+  }
+
+  /**
+   * The change in the instances of one class between the snapshots.
+   */
+  public static class ClassDelta {
+    private final String name;
+    private final String libraryUri;
+    private final int beforeClassId;
+    private final int afterClassId;
+    private int beforeCount;
+    private int afterCount;
+    private long beforeShallowSize;
+    private long afterShallowSize;
+    private int newCount;
+    private int freedCount;
+
+    ClassDelta(String name, String libraryUri, int beforeClassId, int afterClassId) {
+      this.name = name;
+      this.libraryUri = libraryUri;
+      this.beforeClassId = beforeClassId;
+      this.afterClassId = afterClassId;
+    }
+
+    /**
+     * The class id in the later snapshot, or {@code 0} if the class is not in it.
+     */
+    public int getAfterClassId() {
+      return afterClassId;
+    }
+
+    public int getAfterCount() {
+      return afterCount;
+    }
+
+    public long getAfterShallowSize() {
+      return afterShallowSize;
+    }
+
+    /**
+     * The class id in the earlier snapshot, or {@code 0} if the class is not in it.
+     */
+    public int getBeforeClassId() {
+      return beforeClassId;
+    }
+
+    public int getBeforeCount() {
+      return beforeCount;
+    }
+
+    public long getBeforeShallowSize() {
+      return beforeShallowSize;
+    }
+
+    /**
+     * The change in the number of instances.
+     */
+    public int getCountDelta() {
+      return afterCount - beforeCount;
+    }
+
+    /**
+     * The number of instances in the earlier snapshot which are not in the later one.
+     */
+    public int getFreedCount() {
+      return freedCount;
+    }
+
+    public String getLibraryUri() {
+      return libraryUri;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * The number of instances in the later snapshot which are not in the earlier one.
+     */
+    public int getNewCount() {
+      return newCount;
+    }
+
+    /**
+     * The change in the sum of the shallow sizes of the instances.
+     */
+    public long getShallowSizeDelta() {
+      return afterShallowSize - beforeShallowSize;
+    }
+
+    @Override
+    public String toString() {
+      return (libraryUri.isEmpty() ? name : libraryUri + "::" + name) + " " + beforeCount + " -> "
+          + afterCount + " (+" + newCount + " -" + freedCount + ")";
+    }
+  }
+
+  /**
+   * Iterates over the objects which changed in a particular way without allocating per object.
+   * Call {@link #next()} to advance to the first and each following object.
+   */
+  public class Cursor {
+    private final Change change;
+    private int id;
+    private final int end;
+
+    Cursor(Change change) {
+      this.change = change;
+      this.end = change == Change.NEW ? after.objectCount : before.objectCount;
+    }
+
+    /**
+     * The id of the current object in the later snapshot, or {@code 0} if it was freed.
+     */
+    public int getAfterId() {
+      checkPosition();
+      return change == Change.NEW ? id : change == Change.SURVIVING ? matches[id] : 0;
+    }
+
+    /**
+     * The id of the current object in the earlier snapshot, or {@code 0} if it is new.
+     */
+    public int getBeforeId() {
+      checkPosition();
+      return change == Change.NEW ? 0 : id;
+    }
+
+    public Change getChange() {
+      return change;
+    }
+
+    /**
+     * Advance to the next object, returning {@code false} if there are no more.
+     */
+    public boolean next() {
+      while (id < end) {
+        ++id;
+        boolean selected;
+        switch (change) {
+          case NEW:
+            selected = !matched.get(id);
+            break;
+          case FREED:
+            selected = matches[id] == 0;
+            break;
+          default:
+            selected = matches[id] != 0;
+            break;
+        }
+        if (selected) {
+          return true;
+        }
+      }
+      id = end + 1;
+      return false;
+    }
+
+    private void checkPosition() {
+      if (id == 0 || id > end) {
+        throw new NoSuchElementException();
+      }
+    }
+  }
+
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private final HeapSnapshotGraph before;
+  private final HeapSnapshotGraph after;
+
+  /**
+   * The id in the later snapshot of each object in the earlier snapshot, or {@code 0} if freed.
+   */
+  private final int[] matches;
+
+  /**
+   * The objects in the later snapshot which were matched.
+   */
+  private final BitSet matched;
+
+  private final List<ClassDelta> classDeltas;
+
+  private final int survivingCount;
+
+  private HeapSnapshotDiff(HeapSnapshotGraph before, HeapSnapshotGraph after, int[] matches,
+                           BitSet matched, List<ClassDelta> classDeltas, int survivingCount) {
+    this.before = before;
+    this.after = after;
+    this.matches = matches;
+    this.matched = matched;
+    this.classDeltas = classDeltas;
+    this.survivingCount = survivingCount;
+  }
+
+  /**
+   * Compare two snapshots of the same isolate group.
+   *
+   * @throws IllegalArgumentException if the later snapshot has {@code 2^30} or more objects with an
+   *                                  identity hash code, which is more than the table can hold
+   */
+  public static HeapSnapshotDiff compute(HeapSnapshotGraph before, HeapSnapshotGraph after) {
+    // Match classes by library and name, as class ids are specific to each snapshot
+    int[] classMap = new int[before.getClassCount() + 1];
+    List<ClassDelta> deltas = new ArrayList<>();
+    ClassDelta[] afterDeltas = new ClassDelta[after.getClassCount() + 1];
+    ClassDelta[] beforeDeltas = new ClassDelta[before.getClassCount() + 1];
+    Map<String, Integer> afterClassIds = new HashMap<>();
+    for (int classId = 1; classId <= after.getClassCount(); ++classId) {
+      HeapSnapshotClass cls = after.getClass(classId);
+      afterClassIds.putIfAbsent(cls.getLibraryUri() + "::" + cls.getName(), classId);
+    }
+    for (int classId = 1; classId <= before.getClassCount(); ++classId) {
+      HeapSnapshotClass cls = before.getClass(classId);
+      Integer afterClassId = afterClassIds.get(cls.getLibraryUri() + "::" + cls.getName());
+      if (afterClassId != null && afterDeltas[afterClassId] == null) {
+        classMap[classId] = afterClassId;
+        afterDeltas[afterClassId] = beforeDeltas[classId] =
+            new ClassDelta(cls.getName(), cls.getLibraryUri(), classId, afterClassId);
+      } else {
+        beforeDeltas[classId] = new ClassDelta(cls.getName(), cls.getLibraryUri(), classId, 0);
+      }
+      deltas.add(beforeDeltas[classId]);
+    }
+    for (int classId = 1; classId <= after.getClassCount(); ++classId) {
+      if (afterDeltas[classId] == null) {
+        HeapSnapshotClass cls = after.getClass(classId);
+        afterDeltas[classId] = new ClassDelta(cls.getName(), cls.getLibraryUri(), 0, classId);
+        deltas.add(afterDeltas[classId]);
+      }
+    }
+
+    // Index the later snapshot's objects by identity hash code. The table holds object ids and
+    // is probed linearly, comparing the hash codes held by the snapshot itself. It is at most half
+    // full up to the largest power of two array size, and always has an empty slot to end a probe.
+    int[] afterHashCodes = after.identityHashCodes;
+    int hashedCount = 0;
+    for (int id = 1; id <= after.objectCount; ++id) {
+      if (afterHashCodes[id] != 0) {
+        ++hashedCount;
+      }
+    }
+    if (hashedCount >= MAX_CAPACITY) {
+      throw new IllegalArgumentException("Too many objects with identity hash codes: " + hashedCount);
+    }
+    int capacity = (int) Math.min(MAX_CAPACITY, Long.highestOneBit(Math.max(2L, hashedCount) * 2 - 1) << 1);
+    int mask = capacity - 1;
+    int[] table = new int[capacity];
+    for (int id = 1; id <= after.objectCount; ++id) {
+      int hashCode = afterHashCodes[id];
+      if (hashCode != 0) {
+        int slot = mix(hashCode) & mask;
+        while (table[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = id;
+      }
+    }
+
+    // Match the earlier snapshot's objects, allowing for distinct objects with the same hash code
+    int[] beforeHashCodes = before.identityHashCodes;
+    int[] matches = new int[before.objectCount + 1];
+    BitSet matched = new BitSet(after.objectCount + 1);
+    int survivingCount = 0;
+    for (int id = 1; id <= before.objectCount; ++id) {
+      int hashCode = beforeHashCodes[id];
+      int beforeClassId = before.classIds[id];
+      ClassDelta delta = beforeDeltas[beforeClassId];
+      if (delta != null) {
+        ++delta.beforeCount;
+        delta.beforeShallowSize += before.shallowSizes[id];
+      }
+      int afterClassId = classMap[beforeClassId];
+      if (hashCode != 0 && afterClassId != 0) {
+        for (int slot = mix(hashCode) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+          int candidate = table[slot];
+          if (afterHashCodes[candidate] == hashCode && after.classIds[candidate] == afterClassId
+              && !matched.get(candidate)) {
+            matches[id] = candidate;
+            matched.set(candidate);
+            ++survivingCount;
+            break;
+          }
+        }
+      }
+      if (matches[id] == 0 && delta != null) {
+        ++delta.freedCount;
+      }
+    }
+    for (int id = 1; id <= after.objectCount; ++id) {
+      ClassDelta delta = afterDeltas[after.classIds[id]];
+      if (delta != null) {
+        ++delta.afterCount;
+        delta.afterShallowSize += after.shallowSizes[id];
+        if (!matched.get(id)) {
+          ++delta.newCount;
+        }
+      }
+    }
+    return new HeapSnapshotDiff(before, after, matches, matched, Collections.unmodifiableList(deltas), survivingCount);
+  }
+
+  private static int mix(int hashCode) {
+    int h = hashCode * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  public HeapSnapshotGraph getAfter() {
+    return after;
+  }
+
+  public HeapSnapshotGraph getBefore() {
+    return before;
+  }
+
+  /**
+   * Return the change in each class, in no particular order.
+   */
+  public List<ClassDelta> getClassDeltas() {
+    return classDeltas;
+  }
+
+  /**
+   * Return the number of objects in the earlier snapshot which are not in the later one.
+   */
+  public int getFreedCount() {
+    return before.objectCount - survivingCount;
+  }
+
+  /**
+   * Return the id in the later snapshot of the given object in the earlier snapshot, or {@code 0}
+   * if it was freed.
+   */
+  public int getMatch(int beforeId) {
+    return matches[beforeId];
+  }
+
+  /**
+   * Return the number of objects in the later snapshot which are not in the earlier one.
+   */
+  public int getNewCount() {
+    return after.objectCount - survivingCount;
+  }
+
+  public int getSurvivingCount() {
+    return survivingCount;
+  }
+
+  /**
+   * Return a cursor over the objects which changed in the given way, in object id order.
+   */
+  public Cursor objects(Change change) {
+    return new Cursor(change);
+  }
+}
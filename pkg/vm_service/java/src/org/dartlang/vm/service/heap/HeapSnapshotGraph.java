@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.heap;
+
+import java.nio.IntBuffer;
+
+/**
+ * A decoded heap snapshot, as described by runtime/vm/service/heap_snapshot.md.
+ * <p>
+ * Objects are identified by their 1-origin object id. Rather than one Java object per heap object,
+ * the per object properties are held in primitive arrays indexed by object id, and references are
+ * held in compressed sparse row layout: the references of object {@code id} are the elements of
+ * the references array from {@code firstReferences[id]} up to {@code firstReferences[id + 1]}.
+ * Object id {@code 0} is the sentinel which stands for an omitted reference target, and object id
+ * {@code 1} is the root.
+ */
+public class HeapSnapshotGraph {
+  /**
+   * The id of the root object.
+   */
+  public static final int ROOT = 1;
+
+  private final String name;
+  private final long flags;
+  private final long shallowSize;
+  private final long capacity;
+  private final long externalSize;
+  private final HeapSnapshotClass[] classes;
+  final int objectCount;
+  final int[] classIds;
+  final int[] shallowSizes;
+  final int[] firstReferences;
+  final int[] references;
+  final int[] identityHashCodes;
+  private final int[] externalObjects;
+  private final long[] externalSizes;
+  private final String[] externalNames;
+
+  HeapSnapshotGraph(String name, long flags, long shallowSize, long capacity, long externalSize,
+                    HeapSnapshotClass[] classes, int objectCount, int[] classIds, int[] shallowSizes,
+                    int[] firstReferences, int[] references, int[] identityHashCodes,
+                    int[] externalObjects, long[] externalSizes, String[] externalNames) {
+    this.name = name;
+    this.flags = flags;
+    this.shallowSize = shallowSize;
+    this.capacity = capacity;
+    this.externalSize = externalSize;
+    this.classes = classes;
+    this.objectCount = objectCount;
+    this.classIds = classIds;
+    this.shallowSizes = shallowSizes;
+    this.firstReferences = firstReferences;
+    this.references = references;
+    this.identityHashCodes = identityHashCodes;
+    this.externalObjects = externalObjects;
+    this.externalSizes = externalSizes;
+    this.externalNames = externalNames;
+  }
+
+  /**
+   * The amount of memory reserved for this heap in bytes. At least as large as
+   * {@link #getShallowSize()}.
+   */
+  public long getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Return the class with the given 1-origin class id, or the sentinel class for {@code 0}.
+   */
+  public HeapSnapshotClass getClass(int classId) {
+    return classes[classId];
+  }
+
+  /**
+   * The number of classes in the snapshot, not counting the sentinel class. Valid class ids are
+   * {@code 1} through this value.
+   */
+  public int getClassCount() {
+    return classes.length - 1;
+  }
+
+  /**
+   * Return the class id of the given object.
+   */
+  public int getClassId(int objectId) {
+    return classIds[objectId];
+  }
+
+  /**
+   * The number of external properties in the snapshot.
+   */
+  public int getExternalPropertyCount() {
+    return externalObjects.length;
+  }
+
+  public String getExternalPropertyName(int index) {
+    return externalNames[index];
+  }
+
+  /**
+   * Return the id of the object owning the given external property.
+   */
+  public int getExternalPropertyObject(int index) {
+    return externalObjects[index];
+  }
+
+  public long getExternalPropertySize(int index) {
+    return externalSizes[index];
+  }
+
+  /**
+   * The sum of the sizes of all external properties in bytes.
+   */
+  public long getExternalSize() {
+    return externalSize;
+  }
+
+  public long getFlags() {
+    return flags;
+  }
+
+  /**
+   * Return the identity hash code of the given object. A hash code of {@code 0} means the object
+   * cannot be matched across snapshots, or the VM did not report hash codes.
+   */
+  public int getIdentityHashCode(int objectId) {
+    return identityHashCodes[objectId];
+  }
+
+  /**
+   * The name of the isolate group the snapshot was taken of.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * The number of objects in the snapshot, not counting the sentinel. Valid object ids are
+   * {@code 1} through this value.
+   */
+  public int getObjectCount() {
+    return objectCount;
+  }
+
+  /**
+   * Return the number of references held by the given object.
+   */
+  public int getReferenceCount(int objectId) {
+    return firstReferences[objectId + 1] - firstReferences[objectId];
+  }
+
+  /**
+   * Return a read-only view of the ids of the objects referenced by the given object. The view
+   * shares the snapshot's storage.
+   */
+  public IntBuffer getReferences(int objectId) {
+    int start = firstReferences[objectId];
+    return IntBuffer.wrap(references, start, firstReferences[objectId + 1] - start).slice()
+        .asReadOnlyBuffer();
+  }
+
+  /**
+   * The sum of the shallow sizes of all objects in bytes.
+   */
+  public long getShallowSize() {
+    return shallowSize;
+  }
+
+  /**
+   * Return the space used by the given object in bytes.
+   */
+  public int getShallowSize(int objectId) {
+    return shallowSizes[objectId];
+  }
+
+  /**
+   * Return the total number of references held by all objects.
+   */
+  public int getTotalReferenceCount() {
+    return firstReferences[objectCount + 1];
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.heap;
+
+import org.dartlang.vm.service.VmService;
+import org.dartlang.vm.service.element.ElementList;
+import org.dartlang.vm.service.element.Instance;
+import org.dartlang.vm.service.element.InstanceRef;
+import org.dartlang.vm.service.element.MapAssociation;
+import org.dartlang.vm.service.element.Obj;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The elements of a large {@code List} or associations of a large {@code Map}, fetched lazily a
+ * page at a time with the {@code offset} and {@code count} parameters of {@code getObject}.
+ * <p>
+ * While the elements of one page are consumed, the next page is requested. The
+ * {@link #spliterator()} splits on page boundaries, so a parallel {@link #stream(boolean)} fetches
+ * disjoint pages concurrently. Failures to fetch a page, such as a {@code SentinelException} when
+ * the collection has been collected, are thrown by the iterator.
+ *
+ * @param <T> {@link InstanceRef} for the elements of a list, {@link MapAssociation} for the
+ *            associations of a map
+ */
+public class InstancePager<T> implements Iterable<T> {
+  public static final int DEFAULT_PAGE_SIZE = 1000;
+
+  /**
+   * Fetches the elements of the collection from a given offset.
+   */
+  interface PageSource<T> {
+    /**
+     * Request at most {@code count} elements starting at {@code offset}. Fewer may be returned.
+     */
+    CompletableFuture<ElementList<T>> fetch(int offset, int count);
+  }
+
+  private final PageSource<T> source;
+  private final String description;
+  private final int pageSize;
+  private final int length;
+  private final ElementList<T> firstPage;
+
+  /**
+   * @param description the collection, for error messages
+   * @param length      the number of elements in the collection
+   * @param firstPage   the elements from offset {@code 0}, or {@code null} to fetch them lazily
+   */
+  InstancePager(PageSource<T> source, String description, int pageSize, int length,
+                ElementList<T> firstPage) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+    }
+    this.source = source;
+    this.description = description;
+    this.pageSize = pageSize;
+    this.length = length;
+    this.firstPage = firstPage;
+  }
+
+  /**
+   * Fetch the first page of the elements of the given list.
+   *
+   * @param idZoneId the zone in which to allocate ids for the elements, or {@code null} for the
+   *                 default zone
+   */
+  public static CompletableFuture<InstancePager<InstanceRef>> elements(
+      VmService vmService, String isolateId, String listId, String idZoneId, int pageSize) {
+    return open(vmService, isolateId, listId, idZoneId, pageSize, Instance::getElements);
+  }
+
+  /**
+   * Fetch the first page of the associations of the given map.
+   *
+   * @param idZoneId the zone in which to allocate ids for the keys and values, or {@code null}
+   *                 for the default zone
+   */
+  public static CompletableFuture<InstancePager<MapAssociation>> associations(
+      VmService vmService, String isolateId, String mapId, String idZoneId, int pageSize) {
+    return open(vmService, isolateId, mapId, idZoneId, pageSize, Instance::getAssociations);
+  }
+
+  /**
+   * Request the list of the live instances of the given class with {@code getInstancesAsList}, and
+   * fetch its first page.
+   *
+   * @param idZoneId the zone in which to allocate ids for the list and its elements, or
+   *                 {@code null} for the default zone
+   */
+  public static CompletableFuture<InstancePager<InstanceRef>> instancesOf(
+      final VmService vmService, final String isolateId, String classId, boolean includeSubclasses,
+      boolean includeImplementers, final String idZoneId, final int pageSize) {
+    return vmService.getInstancesAsListAsync(isolateId, classId, includeSubclasses,
+        includeImplementers, idZoneId).thenCompose(
+        new Function<InstanceRef, CompletableFuture<InstancePager<InstanceRef>>>() {
+          @Override
+          public CompletableFuture<InstancePager<InstanceRef>> apply(InstanceRef list) {
+            return elements(vmService, isolateId, list.getId(), idZoneId, pageSize);
+          }
+        });
+  }
+
+  private static <T> CompletableFuture<InstancePager<T>> open(
+      final VmService vmService, final String isolateId, final String objectId,
+      final String idZoneId, final int pageSize, final Function<Instance, ElementList<T>> pageElements) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+    }
+    return fetch(vmService, isolateId, objectId, idZoneId, 0, pageSize).thenApply(
+        new Function<Instance, InstancePager<T>>() {
+          @Override
+          public InstancePager<T> apply(Instance first) {
+            PageSource<T> source = new PageSource<T>() {
+              @Override
+              public CompletableFuture<ElementList<T>> fetch(int offset, int count) {
+                return InstancePager.fetch(vmService, isolateId, objectId, idZoneId, offset, count)
+                    .thenApply(pageElements);
+              }
+            };
+            return new InstancePager<>(source, objectId, pageSize, first.getLength(),
+                pageElements.apply(first));
+          }
+        });
+  }
+
+  private static CompletableFuture<Instance> fetch(VmService vmService, String isolateId,
+                                                   String objectId, String idZoneId, int offset,
+                                                   int count) {
+    return vmService.getObjectAsync(isolateId, objectId, offset, count, idZoneId).thenApply(
+        new Function<Obj, Instance>() {
+          @Override
+          public Instance apply(Obj obj) {
+            return new Instance(obj.getJson());
+          }
+        });
+  }
+
+  /**
+   * Return the number of elements or associations in the collection when it was first fetched.
+   */
+  public int size() {
+    return length;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return Spliterators.iterator(spliterator());
+  }
+
+  @Override
+  public Spliterator<T> spliterator() {
+    return new PageSpliterator(0, length, firstPage);
+  }
+
+  /**
+   * Return a stream of the elements or associations, which fetches pages concurrently if
+   * {@code parallel} is {@code true}.
+   */
+  public Stream<T> stream(boolean parallel) {
+    return StreamSupport.stream(spliterator(), parallel);
+  }
+
+  /**
+   * Traverses the elements from {@code index} up to {@code end}. Pages are fetched from
+   * {@code fetchOffset}, which is at a page boundary unless the VM returned a short page. The range
+   * after {@code fetchOffset} and any page being fetched is the part which can still be split.
+   */
+  private class PageSpliterator implements Spliterator<T> {
+    private int index;
+    private int end;
+    private ElementList<T> page;
+    private int pageIndex;
+    private CompletableFuture<ElementList<T>> next;
+    private int fetchOffset;
+
+    PageSpliterator(int start, int end, ElementList<T> page) {
+      this.index = start;
+      this.end = end;
+      this.page = page;
+      this.fetchOffset = page != null ? Math.min(end, start + page.size()) : start;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (index >= end) {
+        return false;
+      }
+      if (page == null || pageIndex >= page.size()) {
+        nextPage();
+      }
+      if (pageIndex == 0) {
+        prefetch();
+      }
+      ++index;
+      action.accept(page.get(pageIndex++));
+      return true;
+    }
+
+    /**
+     * Split off the elements before a page boundary in the unfetched part of the range. The
+     * returned spliterator takes over the current page and any page being fetched, since this
+     * spliterator is ordered and must return a prefix.
+     */
+    @Override
+    public Spliterator<T> trySplit() {
+      int unfetched = next != null ? fetchOffset + pageSize : fetchOffset;
+      int mid = (unfetched + (end - unfetched) / 2) / pageSize * pageSize;
+      if (mid <= unfetched || mid >= end) {
+        return null;
+      }
+      PageSpliterator prefix = new PageSpliterator(index, mid, null);
+      prefix.page = page;
+      prefix.pageIndex = pageIndex;
+      prefix.next = next;
+      prefix.fetchOffset = fetchOffset;
+      index = mid;
+      next = null;
+      page = null;
+      pageIndex = 0;
+      fetchOffset = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return end - index;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+
+    private void prefetch() {
+      if (next == null && fetchOffset < end) {
+        next = source.fetch(fetchOffset, Math.min(pageSize, end - fetchOffset));
+      }
+    }
+
+    private void nextPage() {
+      prefetch();
+      try {
+        page = next.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+      } finally {
+        next = null;
+      }
+      pageIndex = 0;
+      if (page == null || page.isEmpty()) {
+        throw new NoSuchElementException("No elements at offset " + fetchOffset + " of " + description);
+      }
+      fetchOffset = Math.min(end, fetchOffset + page.size());
+    }
+  }
+}
@@ -33,15 +33,27 @@ public class BlockingRequestSink implements RequestSink {
    */
   private final LinkedList<JsonObject> queue = Lists.newLinkedList();
 
+  /**
+   * The sink to which requests are forwarded once the queue has been drained, or {@code null}
+   * while requests are queued.
+   */
+  private RequestSink target;
+
   public BlockingRequestSink(RequestSink base) {
     this.base = base;
   }
 
   @Override
   public void add(JsonObject request) {
+    RequestSink target;
     synchronized (queue) {
-      queue.add(request);
+      target = this.target;
+      if (target == null) {
+        queue.add(request);
+        return;
+      }
     }
+    target.add(request);
   }
 
   @Override
@@ -71,11 +83,30 @@ public class BlockingRequestSink implements RequestSink {
    * Returns the passthrough {@link RequestSink}.
    */
   public RequestSink toPassthroughSink() {
+    return drainTo(base);
+  }
+
+  /**
+   * Forward all the currently queued requests to the given {@link RequestSink}, in order, and all
+   * the future requests added to this sink as well. Returns the given sink.
+   */
+  public RequestSink drainTo(RequestSink sink) {
     synchronized (queue) {
       for (JsonObject request : queue) {
-        base.add(request);
+        sink.add(request);
       }
+      queue.clear();
+      target = sink;
+    }
+    return sink;
+  }
+
+  /**
+   * Return the number of queued requests.
+   */
+  public int size() {
+    synchronized (queue) {
+      return queue.size();
     }
-    return base;
   }
 }
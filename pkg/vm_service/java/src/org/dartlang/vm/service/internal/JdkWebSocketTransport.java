@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.internal;
+
+import com.google.gson.JsonObject;
+import org.dartlang.vm.service.logging.Logger;
+import org.dartlang.vm.service.logging.Logging;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link WebSocketTransport} built on {@link java.net.http.WebSocket}.
+ * <p>
+ * Inbound messages are requested one at a time, and the next one is only requested once the
+ * listener has processed the current one. Text and binary messages are supported. Fragmented
+ * messages are reassembled before being delivered. The JDK client does not negotiate
+ * {@code permessage-deflate}, so frames are sent and received uncompressed.
+ */
+public class JdkWebSocketTransport implements WebSocketTransport {
+  private final HttpClient client;
+
+  public JdkWebSocketTransport() {
+    this(HttpClient.newHttpClient());
+  }
+
+  public JdkWebSocketTransport(HttpClient client) {
+    this.client = client;
+  }
+
+  @Override
+  public RequestSink connect(URI uri, Listener listener) throws IOException {
+    WebSocket webSocket;
+    try {
+      webSocket = client.newWebSocketBuilder().buildAsync(uri, new Receiver(listener)).get();
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to connect: " + uri, e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while connecting: " + uri);
+    }
+    return new Sink(webSocket);
+  }
+
+  /**
+   * Reassembles inbound messages and forwards them to a {@link Listener}.
+   */
+  private static class Receiver implements WebSocket.Listener {
+    private final Listener listener;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final StringBuilder text = new StringBuilder();
+    private ByteBuffer binary;
+
+    Receiver(Listener listener) {
+      this.listener = listener;
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket) {
+      try {
+        listener.onOpen();
+      } catch (Exception e) {
+        Logging.getLogger().logError("Exception processing connection open", e);
+      }
+      webSocket.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+      text.append(data);
+      if (last) {
+        String message = text.toString();
+        text.setLength(0);
+        try {
+          listener.onText(message);
+        } catch (Exception e) {
+          Logging.getLogger().logError("Exception processing message", e);
+        }
+      }
+      webSocket.request(1);
+      return null;
+    }
+
+    @Override
+    public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+      ByteBuffer message = null;
+      if (last && binary == null) {
+        // The common case of an unfragmented message is delivered without copying.
+        message = data.asReadOnlyBuffer();
+      } else {
+        if (binary == null) {
+          binary = ByteBuffer.allocate(Math.max(data.remaining() * 2, 1024));
+        } else if (binary.remaining() < data.remaining()) {
+          ByteBuffer grown = ByteBuffer.allocate(
+              Math.max(binary.capacity() * 2, binary.position() + data.remaining()));
+          binary.flip();
+          grown.put(binary);
+          binary = grown;
+        }
+        binary.put(data);
+        if (last) {
+          binary.flip();
+          message = binary.asReadOnlyBuffer();
+          binary = null;
+        }
+      }
+      if (message != null) {
+        try {
+          listener.onBinary(message);
+        } catch (Exception e) {
+          Logging.getLogger().logError("Exception processing binary message", e);
+        }
+      }
+      webSocket.request(1);
+      return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+      notifyClosed();
+      return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+      Logging.getLogger().logError("VM connection failed", error);
+      notifyClosed();
+    }
+
+    private void notifyClosed() {
+      if (closed.compareAndSet(false, true)) {
+        try {
+          listener.onClose();
+        } catch (Exception e) {
+          Logging.getLogger().logError("Exception processing connection close", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Sends requests in order, starting each send once the previous one has completed as required
+   * by {@link WebSocket#sendText}.
+   */
+  private static class Sink implements RequestSink {
+    private final WebSocket webSocket;
+    private CompletableFuture<Void> lastSend = CompletableFuture.completedFuture(null);
+
+    Sink(WebSocket webSocket) {
+      this.webSocket = webSocket;
+    }
+
+    @Override
+    public void add(JsonObject json) {
+      final String request = json.toString();
+      if (Logging.getLogger() != Logger.NULL) {
+        Logging.getLogger().logInformation("Sent: " + request);
+      }
+      synchronized (this) {
+        lastSend = lastSend
+            .thenCompose(ignored -> webSocket.sendText(request, true))
+            .handle((ignored, e) -> {
+              if (e != null) {
+                Logging.getLogger().logError("Failed to send request: " + request, e);
+              }
+              return null;
+            });
+      }
+    }
+
+    @Override
+    public void close() {
+      synchronized (this) {
+        lastSend = lastSend
+            .thenCompose(ignored -> webSocket.sendClose(WebSocket.NORMAL_CLOSURE, ""))
+            .handle((ignored, e) -> {
+              if (e != null) {
+                Logging.getLogger().logError("Failed to close websocket", e);
+                webSocket.abort();
+              }
+              return null;
+            });
+      }
+    }
+  }
+}
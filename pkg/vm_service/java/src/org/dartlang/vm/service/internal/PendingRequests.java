@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.internal;
+
+import com.google.gson.JsonObject;
+import org.dartlang.vm.service.consumer.Consumer;
+import org.dartlang.vm.service.logging.Logging;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A thread safe registry of the requests which have been sent to the VM but not yet answered.
+ * <p>
+ * Requests may be given a deadline. Deadlines are tracked by a single hashed timer wheel running
+ * on one daemon thread, which is only started once the first request with a deadline is added, and
+ * which sleeps until the next one is added whenever the wheel is empty. Requests which are answered
+ * before their deadline are dropped lazily by that thread.
+ */
+public class PendingRequests {
+  /**
+   * Notified on the timer thread when a request has not been answered before its deadline.
+   */
+  public interface TimeoutHandler {
+    void timedOut(Entry entry);
+  }
+
+  /**
+   * A request which has been sent to the VM.
+   */
+  public static class Entry {
+    private final int id;
+    private final String method;
+    private final Consumer consumer;
+    private final JsonObject request;
+    private final long timeoutMillis;
+    private final long deadlineNanos;
+
+    /**
+     * The number of full turns of the wheel remaining before this entry expires. Only accessed by
+     * the timer thread.
+     */
+    private long remainingRounds;
+
+    Entry(int id, String method, Consumer consumer, JsonObject request, long timeoutMillis) {
+      this.id = id;
+      this.method = method;
+      this.consumer = consumer;
+      this.request = request;
+      this.timeoutMillis = timeoutMillis;
+      this.deadlineNanos = timeoutMillis > 0
+          ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0;
+    }
+
+    public Consumer getConsumer() {
+      return consumer;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public String getMethod() {
+      return method;
+    }
+
+    /**
+     * Return the request which was sent.
+     */
+    public JsonObject getRequest() {
+      return request;
+    }
+
+    /**
+     * Return the number of milliseconds this request was allowed to wait for a response, or
+     * {@code 0} if it has no deadline.
+     */
+    public long getTimeoutMillis() {
+      return timeoutMillis;
+    }
+  }
+
+  private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private static final int WHEEL_SIZE = 512;
+
+  private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * Entries with a deadline which have not yet been placed on the wheel by the timer thread.
+   */
+  private final ConcurrentLinkedQueue<Entry> newTimeouts = new ConcurrentLinkedQueue<>();
+
+  private final TimeoutHandler timeoutHandler;
+
+  private final Object timerLock = new Object();
+
+  private Thread timerThread;
+
+  /**
+   * {@code true} while the timer thread has nothing to track and is waiting to be unparked by
+   * {@link #add}.
+   */
+  private volatile boolean timerIdle;
+
+  private volatile boolean closed;
+
+  public PendingRequests(TimeoutHandler timeoutHandler) {
+    this.timeoutHandler = timeoutHandler;
+  }
+
+  /**
+   * Register a request which is about to be sent.
+   *
+   * @param timeoutMillis the number of milliseconds to wait for a response, or {@code 0} to wait
+   *                      until the connection is closed
+   * @return {@code false} if this registry has been closed and the request was not registered
+   */
+  public boolean add(int id, String method, Consumer consumer, JsonObject request, long timeoutMillis) {
+    if (closed) {
+      return false;
+    }
+    Entry entry = new Entry(id, method, consumer, request, timeoutMillis);
+    entries.put(id, entry);
+    if (entry.deadlineNanos != 0) {
+      newTimeouts.add(entry);
+      startTimer();
+    }
+    if (closed) {
+      // Raced with close(), which may not have seen the entry.
+      return !entries.remove(id, entry);
+    }
+    return true;
+  }
+
+  /**
+   * Remove and return the request with the given id, or {@code null} if there is no such request
+   * because it has already been answered, has timed out or was never sent.
+   */
+  public Entry remove(int id) {
+    return entries.remove(id);
+  }
+
+  /**
+   * Return the number of requests which are waiting for a response.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Stop accepting requests and return all requests which are still waiting for a response. The
+   * caller is responsible for failing them.
+   */
+  public List<Entry> close() {
+    closed = true;
+    synchronized (timerLock) {
+      if (timerThread != null) {
+        timerThread.interrupt();
+        timerThread = null;
+      }
+    }
+    List<Entry> result = removeAll();
+    newTimeouts.clear();
+    return result;
+  }
+
+  /**
+   * Remove and return all requests which are still waiting for a response, in the order in which
+   * they were added, but continue to accept new requests.
+   */
+  public List<Entry> removeAll() {
+    List<Entry> result = new ArrayList<>();
+    for (Integer id : entries.keySet()) {
+      Entry entry = entries.remove(id);
+      if (entry != null) {
+        result.add(entry);
+      }
+    }
+    result.sort(new Comparator<Entry>() {
+      @Override
+      public int compare(Entry e1, Entry e2) {
+        return Integer.compare(e1.id, e2.id);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Register a request which was removed by {@link #removeAll()} so that it can be sent again,
+   * with a new deadline.
+   *
+   * @return {@code false} if this registry has been closed and the request was not registered
+   */
+  public boolean readd(Entry entry) {
+    return add(entry.id, entry.method, entry.consumer, entry.request, entry.timeoutMillis);
+  }
+
+  private void startTimer() {
+    synchronized (timerLock) {
+      if (timerThread != null) {
+        if (timerIdle) {
+          LockSupport.unpark(timerThread);
+        }
+        return;
+      }
+      if (closed) {
+        return;
+      }
+      timerThread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          runTimer();
+        }
+      }, "VM service request timer");
+      timerThread.setDaemon(true);
+      timerThread.start();
+    }
+  }
+
+  private void runTimer() {
+    List<List<Entry>> wheel = new ArrayList<>(WHEEL_SIZE);
+    for (int index = 0; index < WHEEL_SIZE; ++index) {
+      wheel.add(new ArrayList<>());
+    }
+    final long startNanos = System.nanoTime();
+    long tick = 0;
+    int scheduled = 0;
+    while (!closed) {
+      // Sleep while there is nothing to expire. The flag is set before checking the queue, so an
+      // entry added concurrently is either seen here or causes an unpark.
+      if (scheduled == 0 && newTimeouts.isEmpty()) {
+        timerIdle = true;
+        while (newTimeouts.isEmpty()) {
+          LockSupport.park(this);
+          if (closed) {
+            return;
+          }
+        }
+        timerIdle = false;
+
+        // The wheel is empty, so skip the ticks which passed while sleeping
+        tick = (System.nanoTime() - startNanos) / TICK_NANOS;
+      }
+
+      // Wait for the end of the current tick
+      long tickEndNanos = startNanos + (tick + 1) * TICK_NANOS;
+      long waitNanos;
+      while ((waitNanos = tickEndNanos - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(this, waitNanos);
+        if (closed) {
+          return;
+        }
+      }
+
+      // Place newly added deadlines on the wheel
+      Entry entry;
+      while ((entry = newTimeouts.poll()) != null) {
+        if (entries.get(entry.id) != entry) {
+          continue;
+        }
+        long expiryTick = Math.max(tick, (entry.deadlineNanos - startNanos) / TICK_NANOS);
+        entry.remainingRounds = (expiryTick - tick) / WHEEL_SIZE;
+        wheel.get((int) (expiryTick % WHEEL_SIZE)).add(entry);
+        ++scheduled;
+      }
+
+      // Expire the entries in the current bucket
+      Iterator<Entry> iter = wheel.get((int) (tick % WHEEL_SIZE)).iterator();
+      while (iter.hasNext()) {
+        entry = iter.next();
+        if (entries.get(entry.id) != entry) {
+          iter.remove();
+          --scheduled;
+        } else if (entry.remainingRounds > 0) {
+          --entry.remainingRounds;
+        } else {
+          iter.remove();
+          --scheduled;
+          if (entries.remove(entry.id, entry)) {
+            try {
+              timeoutHandler.timedOut(entry);
+            } catch (Exception e) {
+              Logging.getLogger().logError("Exception processing request timeout", e);
+            }
+          }
+        }
+      }
+      ++tick;
+    }
+  }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.internal;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+
+import java.io.Reader;
+
+/**
+ * A JSON-RPC message which has only been scanned far enough to locate its top level members.
+ * <p>
+ * Scanning does not allocate a JSON tree. Members are only decoded when asked for, either into a
+ * Gson tree via {@link #parse(String)} or as a stream via {@link #reader(String)}, so that large
+ * results need not be materialized when nobody is waiting for them or when the consumer decodes
+ * them itself.
+ */
+public class RawMessage {
+  private final String text;
+
+  /**
+   * The top level members, as groups of name start, name end, value start and value end offsets
+   * into {@link #text}. Name offsets exclude the quotes.
+   */
+  private final int[] members;
+
+  private final int memberCount;
+
+  private RawMessage(String text, int[] members, int memberCount) {
+    this.text = text;
+    this.members = members;
+    this.memberCount = memberCount;
+  }
+
+  /**
+   * Locate the top level members of the given JSON object text.
+   *
+   * @throws IllegalArgumentException if the text is not a well formed JSON object
+   */
+  public static RawMessage scan(String text) {
+    int[] members = new int[4 * 6];
+    int count = 0;
+    int pos = skipWhitespace(text, 0);
+    pos = expect(text, pos, '{');
+    pos = skipWhitespace(text, pos);
+    if (pos < text.length() && text.charAt(pos) == '}') {
+      return new RawMessage(text, members, 0);
+    }
+    while (true) {
+      int nameStart = pos + 1;
+      pos = skipString(text, pos);
+      int nameEnd = pos - 1;
+      pos = expect(text, skipWhitespace(text, pos), ':');
+      int valueStart = skipWhitespace(text, pos);
+      pos = skipValue(text, valueStart);
+      if (4 * (count + 1) > members.length) {
+        int[] grown = new int[members.length * 2];
+        System.arraycopy(members, 0, grown, 0, members.length);
+        members = grown;
+      }
+      members[4 * count] = nameStart;
+      members[4 * count + 1] = nameEnd;
+      members[4 * count + 2] = valueStart;
+      members[4 * count + 3] = pos;
+      ++count;
+      pos = skipWhitespace(text, pos);
+      if (pos < text.length() && text.charAt(pos) == ',') {
+        pos = skipWhitespace(text, pos + 1);
+        continue;
+      }
+      expect(text, pos, '}');
+      return new RawMessage(text, members, count);
+    }
+  }
+
+  /**
+   * Return {@code true} if the message has a top level member with the given name.
+   */
+  public boolean has(String name) {
+    return indexOf(name) != -1;
+  }
+
+  /**
+   * Return the value of the given top level member as a string, or {@code null} if the member is
+   * absent or {@code null}. Numbers and booleans are returned as their JSON text.
+   */
+  public String getString(String name) {
+    int index = indexOf(name);
+    if (index == -1) {
+      return null;
+    }
+    return stringValue(members[4 * index + 2], members[4 * index + 3]);
+  }
+
+  /**
+   * Return the value of the member {@code memberName} of the top level object member
+   * {@code name} as a string, or {@code null} if either is absent. Only the nested object's members
+   * up to and including the requested one are scanned.
+   */
+  public String getString(String name, String memberName) {
+    int index = indexOf(name);
+    if (index == -1) {
+      return null;
+    }
+    int pos = members[4 * index + 2];
+    int end = members[4 * index + 3];
+    if (text.charAt(pos) != '{') {
+      return null;
+    }
+    pos = skipWhitespace(text, pos + 1);
+    while (pos < end && text.charAt(pos) == '"') {
+      int nameStart = pos + 1;
+      pos = skipString(text, pos);
+      boolean found = regionEquals(nameStart, pos - 1, memberName);
+      int valueStart = skipWhitespace(text, expect(text, skipWhitespace(text, pos), ':'));
+      pos = skipValue(text, valueStart);
+      if (found) {
+        return stringValue(valueStart, pos);
+      }
+      pos = skipWhitespace(text, pos);
+      if (pos < end && text.charAt(pos) == ',') {
+        pos = skipWhitespace(text, pos + 1);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Decode the given top level member into a Gson tree, or return {@code null} if it is absent.
+   */
+  public JsonElement parse(String name) {
+    int index = indexOf(name);
+    if (index == -1) {
+      return null;
+    }
+    return new JsonParser().parse(new SpanReader(text, members[4 * index + 2], members[4 * index + 3]));
+  }
+
+  /**
+   * Decode the entire message into a Gson tree.
+   */
+  public JsonElement parseAll() {
+    return new JsonParser().parse(text);
+  }
+
+  /**
+   * Return a reader positioned at the start of the given top level member, or {@code null} if it
+   * is absent.
+   */
+  public JsonReader reader(String name) {
+    int index = indexOf(name);
+    if (index == -1) {
+      return null;
+    }
+    return new JsonReader(new SpanReader(text, members[4 * index + 2], members[4 * index + 3]));
+  }
+
+  @Override
+  public String toString() {
+    return text;
+  }
+
+  private int indexOf(String name) {
+    for (int index = 0; index < memberCount; ++index) {
+      if (regionEquals(members[4 * index], members[4 * index + 1], name)) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  private boolean regionEquals(int start, int end, String name) {
+    return end - start == name.length() && text.regionMatches(start, name, 0, name.length());
+  }
+
+  private String stringValue(int start, int end) {
+    if (text.charAt(start) != '"') {
+      String literal = text.substring(start, end);
+      return "null".equals(literal) ? null : literal;
+    }
+    for (int pos = start + 1; pos < end; ++pos) {
+      if (text.charAt(pos) == '\\') {
+        return new JsonParser().parse(text.substring(start, end)).getAsString();
+      }
+    }
+    return text.substring(start + 1, end - 1);
+  }
+
+  private static int expect(String text, int pos, char expected) {
+    if (pos >= text.length() || text.charAt(pos) != expected) {
+      throw new IllegalArgumentException("Expected '" + expected + "' at offset " + pos);
+    }
+    return pos + 1;
+  }
+
+  private static int skipWhitespace(String text, int pos) {
+    while (pos < text.length()) {
+      char ch = text.charAt(pos);
+      if (ch != ' ' && ch != '\t' && ch != '\n' && ch != '\r') {
+        break;
+      }
+      ++pos;
+    }
+    return pos;
+  }
+
+  /**
+   * Skip the string starting at {@code pos} and return the offset following its closing quote.
+   */
+  private static int skipString(String text, int pos) {
+    pos = expect(text, pos, '"');
+    while (pos < text.length()) {
+      char ch = text.charAt(pos++);
+      if (ch == '\\') {
+        ++pos;
+      } else if (ch == '"') {
+        return pos;
+      }
+    }
+    throw new IllegalArgumentException("Unterminated string");
+  }
+
+  /**
+   * Skip the value starting at {@code pos} and return the offset following it.
+   */
+  private static int skipValue(String text, int pos) {
+    if (pos >= text.length()) {
+      throw new IllegalArgumentException("Expected value at offset " + pos);
+    }
+    char ch = text.charAt(pos);
+    if (ch == '"') {
+      return skipString(text, pos);
+    }
+    if (ch == '{' || ch == '[') {
+      int depth = 0;
+      while (pos < text.length()) {
+        ch = text.charAt(pos);
+        if (ch == '"') {
+          pos = skipString(text, pos);
+          continue;
+        }
+        ++pos;
+        if (ch == '{' || ch == '[') {
+          ++depth;
+        } else if (ch == '}' || ch == ']') {
+          if (--depth == 0) {
+            return pos;
+          }
+        }
+      }
+      throw new IllegalArgumentException("Unterminated value");
+    }
+    int start = pos;
+    while (pos < text.length()) {
+      ch = text.charAt(pos);
+      if (ch == ',' || ch == '}' || ch == ']' || ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r') {
+        break;
+      }
+      ++pos;
+    }
+    if (pos == start) {
+      throw new IllegalArgumentException("Expected value at offset " + pos);
+    }
+    return pos;
+  }
+
+  /**
+   * A {@link Reader} over a region of a {@link String} which does not copy the region.
+   */
+  private static class SpanReader extends Reader {
+    private final String text;
+    private final int end;
+    private int pos;
+
+    SpanReader(String text, int start, int end) {
+      this.text = text;
+      this.pos = start;
+      this.end = end;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+      if (pos >= end) {
+        return -1;
+      }
+      int count = Math.min(length, end - pos);
+      text.getChars(pos, pos + count, buffer, offset);
+      pos += count;
+      return count;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
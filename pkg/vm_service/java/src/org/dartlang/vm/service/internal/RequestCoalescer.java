@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.internal;
+
+import org.dartlang.vm.service.consumer.Consumer;
+import org.dartlang.vm.service.element.RPCError;
+import org.dartlang.vm.service.logging.Logging;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares a single in-flight request between callers who make an identical idempotent request
+ * before the first one has been answered.
+ */
+public class RequestCoalescer {
+  /**
+   * The methods which are coalesced by default. They only read state, so a response to one
+   * request is a valid response to an identical request made while it was in flight.
+   */
+  public static final Set<String> DEFAULT_METHODS = Collections.unmodifiableSet(new HashSet<>(
+      Arrays.asList("getIsolate", "getObject", "getScripts", "getStack", "getVM", "getVersion")));
+
+  /**
+   * The consumers waiting for one in-flight request. The group is registered as the consumer of
+   * the request it was created for, and its members must all be answered with the response.
+   */
+  public class Group implements Consumer {
+    private final String key;
+    private final List<Consumer> members = new ArrayList<>();
+    private boolean completed;
+
+    Group(String key, Consumer consumer) {
+      this.key = key;
+      members.add(consumer);
+    }
+
+    /**
+     * Stop accepting members and return the consumers to be answered with the response.
+     */
+    public List<Consumer> complete() {
+      groups.remove(key, this);
+      synchronized (this) {
+        completed = true;
+        return members;
+      }
+    }
+
+    @Override
+    public void onError(RPCError error) {
+      for (Consumer consumer : complete()) {
+        try {
+          consumer.onError(error);
+        } catch (Exception e) {
+          Logging.getLogger().logError("Exception processing error", e);
+        }
+      }
+    }
+
+    synchronized boolean join(Consumer consumer) {
+      if (completed) {
+        return false;
+      }
+      members.add(consumer);
+      return true;
+    }
+  }
+
+  private final Set<String> methods;
+  private final ConcurrentHashMap<String, Group> groups = new ConcurrentHashMap<>();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public RequestCoalescer(Set<String> methods) {
+    this.methods = methods;
+  }
+
+  /**
+   * Return the number of requests which were answered by joining an identical in-flight request.
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * Return the number of coalescable requests which were sent to the VM.
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Return {@code true} if requests for the given method may be coalesced.
+   */
+  public boolean isCoalesced(String method) {
+    return methods.contains(method);
+  }
+
+  /**
+   * Add the given consumer to the in-flight request with the given key. Return {@code null} if
+   * it joined an in-flight request, or otherwise the group which the caller must register as the
+   * consumer of a new request.
+   */
+  public Group join(String key, Consumer consumer) {
+    while (true) {
+      Group group = groups.get(key);
+      if (group == null) {
+        group = new Group(key, consumer);
+        if (groups.putIfAbsent(key, group) == null) {
+          misses.incrementAndGet();
+          return group;
+        }
+      } else if (group.join(consumer)) {
+        hits.incrementAndGet();
+        return null;
+      } else {
+        // The group completed concurrently, so try again with a new one.
+        groups.remove(key, group);
+      }
+    }
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.internal;
+
+import com.google.gson.JsonObject;
+import org.dartlang.vm.service.consumer.Consumer;
+import org.dartlang.vm.service.element.RPCError;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A bounded, least recently used cache of responses to reads of isolate state.
+ * <p>
+ * Objects, including classes, whose subclasses and allocation tracing may change, can change
+ * whenever an isolate runs, so responses are only cached while their isolate is known to be paused,
+ * and are dropped when it resumes. Libraries and scripts only change when the isolate is reloaded,
+ * so they are cached whether or not the isolate is paused, and dropped when it is reloaded or
+ * exits. Pauses and reloads are only known while the client receives the events on the Debug and
+ * Isolate streams respectively, so nothing is cached without them. Requests which may modify an
+ * isolate drop all of its responses. A response to a request made before the cache was invalidated
+ * is not cached.
+ */
+public class ResponseCache {
+  /**
+   * The methods whose responses are cached. {@code getInstance} and {@code getLibrary} are built
+   * on {@code getObject}.
+   */
+  public static final Set<String> METHODS = Collections.unmodifiableSet(new HashSet<>(
+      Arrays.asList("getObject", "getScripts")));
+
+  /**
+   * The methods which may modify the objects, classes or libraries of their isolate.
+   */
+  public static final Set<String> MODIFYING_METHODS = Collections.unmodifiableSet(new HashSet<>(
+      Arrays.asList("evaluate", "evaluateInFrame", "invoke", "setLibraryDebuggable", "setTraceClassAllocation")));
+
+  private static final Set<String> STABLE_TYPES = Collections.unmodifiableSet(new HashSet<>(
+      Arrays.asList("Library", "Script")));
+
+  /**
+   * A cached response.
+   */
+  public static class Entry {
+    private final String isolateId;
+    private final String type;
+    private final JsonObject json;
+
+    Entry(String isolateId, String type, JsonObject json) {
+      this.isolateId = isolateId;
+      this.type = type;
+      this.json = json;
+    }
+
+    public JsonObject getJson() {
+      return json;
+    }
+
+    public String getType() {
+      return type;
+    }
+  }
+
+  /**
+   * Registered as the consumer of a request whose response may be cached. The response must be
+   * passed to {@link #store(String, JsonObject)} and then forwarded to {@link #getConsumer()}.
+   */
+  public class Pending implements Consumer {
+    private final String key;
+    private final String isolateId;
+    private final long generation;
+    private final Consumer consumer;
+
+    Pending(String key, String isolateId, long generation, Consumer consumer) {
+      this.key = key;
+      this.isolateId = isolateId;
+      this.generation = generation;
+      this.consumer = consumer;
+    }
+
+    public Consumer getConsumer() {
+      return consumer;
+    }
+
+    @Override
+    public void onError(RPCError error) {
+      consumer.onError(error);
+    }
+
+    public void store(String type, JsonObject json) {
+      synchronized (ResponseCache.this) {
+        if (generation(isolateId) == generation
+            && (pausedIsolateIds.contains(isolateId) || (reloadsTracked && STABLE_TYPES.contains(type)))) {
+          entries.put(key, new Entry(isolateId, type, json));
+        }
+      }
+    }
+  }
+
+  private final LinkedHashMap<String, Entry> entries;
+
+  private final Set<String> pausedIsolateIds = new HashSet<>();
+  private boolean pausesTracked;
+  private boolean reloadsTracked;
+
+  /**
+   * Incremented for an isolate each time its responses are invalidated.
+   */
+  private final Map<String, Long> generations = new HashMap<>();
+
+  /**
+   * The generation of isolates which have not been invalidated since the cache was last cleared.
+   */
+  private long baseGeneration = 0;
+
+  private long nextGeneration = 1;
+  private long hits;
+  private long misses;
+
+  public ResponseCache(final int maxEntries) {
+    this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Return the cached response with the given key, or {@code null} if there is none.
+   */
+  public synchronized Entry get(String key) {
+    Entry entry = entries.get(key);
+    if (entry != null) {
+      ++hits;
+    } else {
+      ++misses;
+    }
+    return entry;
+  }
+
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  /**
+   * Return a consumer to register for a request with the given key which missed the cache.
+   */
+  public synchronized Pending pending(String key, String isolateId, Consumer consumer) {
+    return new Pending(key, isolateId, generation(isolateId), consumer);
+  }
+
+  /**
+   * Record whether the client receives the events which report that isolates have paused or
+   * resumed, and those which report that they have been reloaded or exited, dropping the responses
+   * which can no longer be invalidated.
+   */
+  public synchronized void setTracking(boolean pauses, boolean reloads) {
+    if (!pauses && pausesTracked) {
+      for (String isolateId : pausedIsolateIds) {
+        invalidate(isolateId, false);
+      }
+      pausedIsolateIds.clear();
+    }
+    if (!reloads && reloadsTracked) {
+      clear();
+    }
+    pausesTracked = pauses;
+    reloadsTracked = reloads;
+  }
+
+  /**
+   * Record that the given isolate has paused.
+   */
+  public synchronized void paused(String isolateId) {
+    if (pausesTracked) {
+      pausedIsolateIds.add(isolateId);
+    }
+  }
+
+  /**
+   * Record that the given isolate has resumed, dropping the responses which may have changed.
+   */
+  public synchronized void resumed(String isolateId) {
+    pausedIsolateIds.remove(isolateId);
+    invalidate(isolateId, false);
+  }
+
+  /**
+   * Record that the given isolate has been reloaded, dropping all of its responses.
+   */
+  public synchronized void reloaded(String isolateId) {
+    invalidate(isolateId, true);
+  }
+
+  /**
+   * Record that a request which may modify the given isolate is being sent, dropping all of its
+   * responses.
+   */
+  public synchronized void modified(String isolateId) {
+    invalidate(isolateId, true);
+  }
+
+  /**
+   * Record that the given isolate has exited, dropping all of its responses.
+   */
+  public synchronized void exited(String isolateId) {
+    pausedIsolateIds.remove(isolateId);
+    invalidate(isolateId, true);
+  }
+
+  /**
+   * Drop all responses and forget which isolates are paused, for example because events may have
+   * been missed while the connection was lost.
+   */
+  public synchronized void clear() {
+    baseGeneration = nextGeneration++;
+    generations.clear();
+    pausedIsolateIds.clear();
+    entries.clear();
+  }
+
+  private void invalidate(String isolateId, boolean all) {
+    generations.put(isolateId, nextGeneration++);
+    Iterator<Entry> iter = entries.values().iterator();
+    while (iter.hasNext()) {
+      Entry entry = iter.next();
+      if (entry.isolateId.equals(isolateId) && (all || !STABLE_TYPES.contains(entry.type))) {
+        iter.remove();
+      }
+    }
+  }
+
+  private long generation(String isolateId) {
+    Long generation = generations.get(isolateId);
+    return generation != null ? generation : baseGeneration;
+  }
+}
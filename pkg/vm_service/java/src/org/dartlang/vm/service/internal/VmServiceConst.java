@@ -21,11 +21,14 @@ public interface VmServiceConst {
   static final String ERROR = "error";
   static final String EVENT = "event";
   static final String ID = "id";
+  static final String ISOLATE_ID = "isolateId";
   static final String MESSAGE = "message";
   static final String METHOD = "method";
   static final String PARAMS = "params";
   static final String RESULT = "result";
+  static final String STREAM_CANCEL = "streamCancel";
   static final String STREAM_ID = "streamId";
+  static final String STREAM_LISTEN = "streamListen";
   static final String TYPE = "type";
   static final String JSONRPC = "jsonrpc";
   static final String JSONRPC_VERSION = "2.0";
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.internal;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+
+/**
+ * The means by which a connection to the VM service is established. Implementations deliver each
+ * complete inbound message to a {@link Listener} and return a {@link RequestSink} for outbound
+ * requests.
+ * <p>
+ * Implementations should not read the next message from the socket until the listener has
+ * returned from the previous one, so that a slow listener throttles the socket rather than
+ * causing messages to be buffered without bound.
+ */
+public interface WebSocketTransport {
+  /**
+   * Receives connection events and inbound messages. Methods are called from a single thread at a
+   * time.
+   */
+  interface Listener {
+    void onOpen();
+
+    /**
+     * Called with a complete text message.
+     */
+    void onText(String text);
+
+    /**
+     * Called with a complete binary message. The buffer is read-only and only valid for the
+     * duration of the call.
+     */
+    void onBinary(ByteBuffer data);
+
+    void onClose();
+  }
+
+  /**
+   * Connect to the given web socket URI.
+   *
+   * @return the sink through which requests are sent (not {@code null})
+   */
+  RequestSink connect(URI uri, Listener listener) throws IOException;
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.internal;
+
+import de.roderick.weberknecht.WebSocket;
+import de.roderick.weberknecht.WebSocketEventHandler;
+import de.roderick.weberknecht.WebSocketException;
+import de.roderick.weberknecht.WebSocketMessage;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * A {@link WebSocketTransport} built on weberknecht. It reads on a dedicated thread per socket and
+ * does not support binary messages.
+ */
+public class WeberknechtTransport implements WebSocketTransport {
+  @Override
+  public RequestSink connect(URI uri, final Listener listener) throws IOException {
+    WebSocket webSocket;
+    try {
+      webSocket = new WebSocket(uri);
+    } catch (WebSocketException e) {
+      throw new IOException("Failed to create websocket: " + uri, e);
+    }
+
+    webSocket.setEventHandler(new WebSocketEventHandler() {
+      @Override
+      public void onClose() {
+        listener.onClose();
+      }
+
+      @Override
+      public void onMessage(WebSocketMessage message) {
+        listener.onText(message.getText());
+      }
+
+      @Override
+      public void onOpen() {
+        listener.onOpen();
+      }
+
+      @Override
+      public void onPing() {
+      }
+
+      @Override
+      public void onPong() {
+      }
+    });
+
+    //noinspection TryWithIdenticalCatches
+    try {
+      webSocket.connect();
+    } catch (WebSocketException e) {
+      throw new IOException("Failed to connect: " + uri, e);
+    } catch (ArrayIndexOutOfBoundsException e) {
+      // The weberknecht can occasionally throw an array index exception if a connect terminates on initial connect
+      // (de.roderick.weberknecht.WebSocket.connect, WebSocket.java:126).
+      throw new IOException("Failed to connect: " + uri, e);
+    }
+    return new WebSocketRequestSink(webSocket);
+  }
+}
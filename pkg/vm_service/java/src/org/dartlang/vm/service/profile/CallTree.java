@@ -0,0 +1,407 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.profile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A call tree aggregated from the stacks of CPU samples.
+ * <p>
+ * In a top-down tree the children of the root are the outermost functions, such as {@code main},
+ * and each path from the root follows calls inwards. In a bottom-up tree the children of the root
+ * are the functions which were executing when samples were taken, and each path follows callers
+ * outwards. A node's self count is the number of samples whose stack ends at that node, and its
+ * total count is the number of samples whose stack passes through it. In a bottom-up tree, the
+ * self time of a function is therefore the total count of its node among the children of the root.
+ * <p>
+ * The tree is a trie held in primitive arrays indexed by node, with node {@code 0} as the root.
+ * A node's children are found by following {@link #getFirstChild(int)} and
+ * {@link #getNextSibling(int)}, and a node's parent always has a smaller index than the node.
+ * Functions are indices into the {@link ProfileFunctionTable} of the samples.
+ */
+public class CallTree {
+  /**
+   * The root node, which has no function.
+   */
+  public static final int ROOT = 0;
+
+  private final ProfileFunctionTable functions;
+  private final boolean bottomUp;
+  private long samplePeriod;
+  private int nodeCount;
+  private int[] nodeFunctions;
+  private int[] parents;
+
+  /**
+   * The first child and next sibling of each node, or {@code 0}, which is never a child, if none.
+   */
+  private int[] firstChildren;
+  private int[] nextSiblings;
+  private long[] selfCounts;
+  private long[] totalCounts;
+
+  /**
+   * An open addressing table of nodes other than the root, keyed by parent and function, used to
+   * find the child of a node for a function.
+   */
+  private int[] childTable;
+
+  CallTree(ProfileFunctionTable functions, boolean bottomUp, long samplePeriod) {
+    this.functions = functions;
+    this.bottomUp = bottomUp;
+    this.samplePeriod = samplePeriod;
+    int capacity = 1024;
+    nodeFunctions = new int[capacity];
+    parents = new int[capacity];
+    firstChildren = new int[capacity];
+    nextSiblings = new int[capacity];
+    selfCounts = new long[capacity];
+    totalCounts = new long[capacity];
+    childTable = new int[2 * capacity];
+    nodeFunctions[ROOT] = -1;
+    parents[ROOT] = -1;
+    nodeCount = 1;
+  }
+
+  /**
+   * Return the top-down call tree of all of the given samples.
+   */
+  public static CallTree topDown(CpuSampleTable table) {
+    return build(table, false, SampleFilter.ALL);
+  }
+
+  /**
+   * Return the bottom-up call tree of all of the given samples.
+   */
+  public static CallTree bottomUp(CpuSampleTable table) {
+    return build(table, true, SampleFilter.ALL);
+  }
+
+  /**
+   * Return the call tree of the given samples which are accepted by the given filter.
+   */
+  public static CallTree build(CpuSampleTable table, boolean bottomUp, SampleFilter filter) {
+    CallTree tree = new CallTree(table.getFunctions(), bottomUp, table.getSamplePeriod());
+    tree.add(table, filter);
+    return tree;
+  }
+
+  /**
+   * Return the call tree of the samples of several isolates which are accepted by the given filter.
+   * The trees of the isolates are built and merged in parallel.
+   *
+   * @throws IllegalArgumentException if the tables do not share a {@link ProfileFunctionTable}
+   */
+  public static CallTree build(List<CpuSampleTable> tables, final boolean bottomUp, final SampleFilter filter) {
+    if (tables.isEmpty()) {
+      return new CallTree(new ProfileFunctionTable(), bottomUp, 0);
+    }
+    ProfileFunctionTable functions = tables.get(0).getFunctions();
+    for (CpuSampleTable table : tables) {
+      if (table.getFunctions() != functions) {
+        throw new IllegalArgumentException("Samples must be decoded with a shared ProfileFunctionTable");
+      }
+    }
+    return tables.parallelStream()
+        .map(table -> build(table, bottomUp, filter))
+        .reduce(CallTree::merge)
+        .get();
+  }
+
+  public ProfileFunctionTable getFunctions() {
+    return functions;
+  }
+
+  /**
+   * Return {@code true} if this is a bottom-up tree.
+   */
+  public boolean isBottomUp() {
+    return bottomUp;
+  }
+
+  /**
+   * The sampling rate for the profiler in microseconds, used to convert counts to times.
+   */
+  public long getSamplePeriod() {
+    return samplePeriod;
+  }
+
+  /**
+   * Return the number of nodes, including the root.
+   */
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Return the index of the function of the given node, or {@code -1} for the root.
+   */
+  public int getFunction(int node) {
+    return nodeFunctions[node];
+  }
+
+  /**
+   * Return the parent of the given node, or {@code -1} for the root.
+   */
+  public int getParent(int node) {
+    return parents[node];
+  }
+
+  /**
+   * Return the first child of the given node, or {@code -1} if it has none.
+   */
+  public int getFirstChild(int node) {
+    int child = firstChildren[node];
+    return child != 0 ? child : -1;
+  }
+
+  /**
+   * Return the next sibling of the given node, or {@code -1} if it is the last child.
+   */
+  public int getNextSibling(int node) {
+    int sibling = nextSiblings[node];
+    return sibling != 0 ? sibling : -1;
+  }
+
+  /**
+   * Return the children of the given node, in decreasing order of total count.
+   */
+  public int[] getChildren(int node) {
+    List<Integer> children = new ArrayList<>();
+    for (int child = firstChildren[node]; child != 0; child = nextSiblings[child]) {
+      children.add(child);
+    }
+    children.sort(new Comparator<Integer>() {
+      @Override
+      public int compare(Integer node1, Integer node2) {
+        return Long.compare(totalCounts[node2], totalCounts[node1]);
+      }
+    });
+    int[] result = new int[children.size()];
+    for (int index = 0; index < result.length; ++index) {
+      result[index] = children.get(index);
+    }
+    return result;
+  }
+
+  /**
+   * Return the number of samples whose stack ends at the given node.
+   */
+  public long getSelfCount(int node) {
+    return selfCounts[node];
+  }
+
+  /**
+   * Return the number of samples whose stack passes through the given node. For the root, this is
+   * the number of samples in the tree.
+   */
+  public long getTotalCount(int node) {
+    return totalCounts[node];
+  }
+
+  /**
+   * Return the time in microseconds spent in the given node itself, estimated from the sample
+   * period.
+   */
+  public long getSelfMicros(int node) {
+    return selfCounts[node] * samplePeriod;
+  }
+
+  /**
+   * Return the time in microseconds spent in the given node and the nodes beneath it, estimated
+   * from the sample period.
+   */
+  public long getTotalMicros(int node) {
+    return totalCounts[node] * samplePeriod;
+  }
+
+  /**
+   * Return the depth of the given node, where the root has depth {@code 0}.
+   */
+  public int getDepth(int node) {
+    int depth = 0;
+    while (node != ROOT) {
+      node = parents[node];
+      ++depth;
+    }
+    return depth;
+  }
+
+  /**
+   * Return the node reached from the root by the given path of function indices, or {@code -1} if
+   * there is no such node.
+   */
+  public int find(int... path) {
+    int node = ROOT;
+    for (int function : path) {
+      node = findChild(node, function);
+      if (node == -1) {
+        return -1;
+      }
+    }
+    return node;
+  }
+
+  /**
+   * Write the tree in the folded stack format read by flame graph tools: one line per node with a
+   * non-zero self count, containing the function names on the path from the root separated by
+   * {@code ;}, a space, and the self count. Paths of a top-down tree start with the outermost
+   * function.
+   */
+  public void writeFolded(Appendable out) throws IOException {
+    String[] names = new String[functions.size()];
+    for (int function = 0; function < names.length; ++function) {
+      String name = functions.getName(function);
+      names[function] = name == null ? "<unknown>" : name.replace(';', ':').replace('\n', ' ');
+    }
+    StringBuilder path = new StringBuilder();
+    // Parents precede their children, so each node's path can be built from its parent's
+    String[] paths = new String[nodeCount];
+    for (int node = 1; node < nodeCount; ++node) {
+      int parent = parents[node];
+      path.setLength(0);
+      if (parent != ROOT) {
+        path.append(paths[parent]).append(';');
+      }
+      path.append(names[nodeFunctions[node]]);
+      if (firstChildren[node] != 0) {
+        paths[node] = path.toString();
+      }
+      if (selfCounts[node] != 0) {
+        out.append(path).append(' ').append(Long.toString(selfCounts[node])).append('\n');
+      }
+    }
+  }
+
+  /**
+   * Add the counts of the given tree to this tree and return this tree.
+   *
+   * @throws IllegalArgumentException if the trees do not share a {@link ProfileFunctionTable} or
+   *                                  have different directions
+   */
+  public CallTree merge(CallTree other) {
+    if (other.functions != functions || other.bottomUp != bottomUp) {
+      throw new IllegalArgumentException("Trees must share functions and direction");
+    }
+    if (samplePeriod == 0) {
+      samplePeriod = other.samplePeriod;
+    }
+    int[] nodes = new int[other.nodeCount];
+    selfCounts[ROOT] += other.selfCounts[ROOT];
+    totalCounts[ROOT] += other.totalCounts[ROOT];
+    for (int otherNode = 1; otherNode < other.nodeCount; ++otherNode) {
+      int node = child(nodes[other.parents[otherNode]], other.nodeFunctions[otherNode]);
+      nodes[otherNode] = node;
+      selfCounts[node] += other.selfCounts[otherNode];
+      totalCounts[node] += other.totalCounts[otherNode];
+    }
+    return this;
+  }
+
+  private void add(CpuSampleTable table, SampleFilter filter) {
+    SampleFilter.Matcher matcher = filter.matcher(table);
+    for (int sample = 0; sample < table.sampleCount; ++sample) {
+      if (matcher.accepts(sample)) {
+        add(table, sample);
+      }
+    }
+  }
+
+  /**
+   * Add the given sample, whose table must have the functions of this tree.
+   */
+  void add(CpuSampleTable table, int sample) {
+    int[] frames = table.frames;
+    int start = table.stackStarts[sample];
+    int end = table.stackStarts[sample + 1];
+    int node = ROOT;
+    ++totalCounts[ROOT];
+    if (bottomUp) {
+      for (int index = start; index < end; ++index) {
+        node = child(node, frames[index]);
+        ++totalCounts[node];
+      }
+    } else {
+      for (int index = end - 1; index >= start; --index) {
+        node = child(node, frames[index]);
+        ++totalCounts[node];
+      }
+    }
+    ++selfCounts[node];
+  }
+
+  private int findChild(int parent, int function) {
+    int mask = childTable.length - 1;
+    for (int slot = mix(parent, function) & mask; childTable[slot] != 0; slot = (slot + 1) & mask) {
+      int node = childTable[slot];
+      if (parents[node] == parent && nodeFunctions[node] == function) {
+        return node;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Return the child of the given node for the given function, adding it if necessary.
+   */
+  private int child(int parent, int function) {
+    int mask = childTable.length - 1;
+    int slot = mix(parent, function) & mask;
+    for (; childTable[slot] != 0; slot = (slot + 1) & mask) {
+      int node = childTable[slot];
+      if (parents[node] == parent && nodeFunctions[node] == function) {
+        return node;
+      }
+    }
+    if (nodeCount == nodeFunctions.length) {
+      grow();
+      return child(parent, function);
+    }
+    int node = nodeCount++;
+    nodeFunctions[node] = function;
+    parents[node] = parent;
+    nextSiblings[node] = firstChildren[parent];
+    firstChildren[parent] = node;
+    childTable[slot] = node;
+    return node;
+  }
+
+  private void grow() {
+    int capacity = nodeFunctions.length * 2;
+    nodeFunctions = Arrays.copyOf(nodeFunctions, capacity);
+    parents = Arrays.copyOf(parents, capacity);
+    firstChildren = Arrays.copyOf(firstChildren, capacity);
+    nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+    selfCounts = Arrays.copyOf(selfCounts, capacity);
+    totalCounts = Arrays.copyOf(totalCounts, capacity);
+    childTable = new int[2 * capacity];
+    int mask = childTable.length - 1;
+    for (int node = 1; node < nodeCount; ++node) {
+      int slot = mix(parents[node], nodeFunctions[node]) & mask;
+      while (childTable[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      childTable[slot] = node;
+    }
+  }
+
+  private static int mix(int parent, int function) {
+    int h = (parent * 0x9E3779B9) ^ (function * 0x85EBCA6B);
+    return h ^ (h >>> 16);
+  }
+}
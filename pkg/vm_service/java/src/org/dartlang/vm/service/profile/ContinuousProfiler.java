@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.profile;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.dartlang.vm.service.EventPublisher;
+import org.dartlang.vm.service.VmService;
+import org.dartlang.vm.service.element.Event;
+import org.dartlang.vm.service.logging.Logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Profiles a VM continuously from the samples it sends on the {@link VmService#PROFILER_STREAM_ID}
+ * stream, writing one gzipped pprof file per fixed window of time to a directory.
+ * <p>
+ * The VM only sends samples taken while one of the user tags passed to {@link #start(List)} is
+ * set, and sends each sample once, so windows neither overlap nor miss samples the way polling
+ * {@code getCpuSamples} does. Samples are aggregated as they arrive into one top-down
+ * {@link CallTree} per user tag, so memory is proportional to the number of distinct call paths in
+ * the current window rather than the number of samples, plus the table of functions seen so far.
+ * Files are named after the start time of their window in milliseconds since the epoch and a
+ * sequence number. A window which reaches
+ * {@link #setMaxNodesPerWindow(int)} nodes is written early, and the next window then lasts the
+ * full window length.
+ * <p>
+ * Events are received through an {@link EventPublisher} subscription, so aggregation does not
+ * delay other events or responses. If the profiler falls behind, events are dropped and counted
+ * by {@link #getDroppedEventCount()}. Windows are written on a separate thread, which runs from
+ * {@link #start(List)} until {@link #stop()}.
+ */
+public class ContinuousProfiler {
+  private static final int EVENT_QUEUE_CAPACITY = 64;
+
+  private final VmService vmService;
+  private final Path directory;
+  private final long windowMillis;
+  private final ProfileFunctionTable functions = new ProfileFunctionTable();
+  private volatile int maxNodesPerWindow = 1 << 20;
+
+  // Guarded by this
+  private Map<String, CallTree> window = new HashMap<>();
+  private int windowNodeCount;
+  private long windowStartMillis;
+  private long samplePeriod;
+  private int windowSequence;
+  private boolean rollRequested;
+
+  private EventPublisher.EventSubscription subscription;
+  private ScheduledExecutorService executor;
+  private ScheduledFuture<?> rollTask;
+  private long droppedEventCount;
+  private final AtomicLong sampleCount = new AtomicLong();
+  private final AtomicLong windowCount = new AtomicLong();
+
+  /**
+   * @param directory    the directory to which profiles are written, which must exist
+   * @param windowMillis the length of each window in milliseconds
+   */
+  public ContinuousProfiler(VmService vmService, Path directory, long windowMillis) {
+    if (windowMillis <= 0) {
+      throw new IllegalArgumentException("windowMillis must be positive: " + windowMillis);
+    }
+    this.vmService = vmService;
+    this.directory = directory;
+    this.windowMillis = windowMillis;
+    this.windowStartMillis = System.currentTimeMillis();
+  }
+
+  /**
+   * Set the number of call tree nodes, over all user tags, at which a window is written early.
+   */
+  public void setMaxNodesPerWindow(int maxNodes) {
+    maxNodesPerWindow = maxNodes;
+  }
+
+  /**
+   * Ask the VM to stream the samples taken while one of the given user tags is set, and start
+   * writing windows. The future completes once the VM has accepted both requests. A stopped
+   * profiler may be started again.
+   */
+  public synchronized CompletableFuture<Void> start(List<String> userTags) {
+    if (subscription != null) {
+      throw new IllegalStateException("Already started");
+    }
+    windowStartMillis = System.currentTimeMillis();
+    executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "VM service profiler");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    subscription = vmService.getEventPublisher(VmService.PROFILER_STREAM_ID).subscribe(new Flow.Subscriber<Event>() {
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+      }
+
+      @Override
+      public void onNext(Event event) {
+        JsonElement samples = event.getJson().get("cpuSamples");
+        if (samples != null && samples.isJsonObject()) {
+          add(samples.getAsJsonObject());
+        }
+      }
+
+      @Override
+      public void onError(Throwable e) {
+        Logging.getLogger().logError("Profiler stream failed", e);
+      }
+
+      @Override
+      public void onComplete() {
+        stop();
+      }
+    }, EVENT_QUEUE_CAPACITY, EventPublisher.OverflowPolicy.DROP_NEWEST);
+    scheduleRolls(windowMillis);
+    return vmService.streamCpuSamplesWithUserTagAsync(userTags)
+        .thenCompose(success -> vmService.streamListenIfNeededAsync(VmService.PROFILER_STREAM_ID))
+        .thenApply(subscribed -> null);
+  }
+
+  /**
+   * Stop profiling and write the current window. The VM continues to send samples with the user
+   * tags passed to {@link #start(List)} until they are changed with
+   * {@code streamCpuSamplesWithUserTag}.
+   */
+  public synchronized void stop() {
+    if (subscription == null) {
+      return;
+    }
+    subscription.cancel();
+    droppedEventCount += subscription.getDroppedCount();
+    subscription = null;
+    rollTask.cancel(false);
+    rollTask = null;
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        roll();
+      }
+    });
+    executor.shutdown();
+    executor = null;
+  }
+
+  /**
+   * Return the directory to which profiles are written.
+   */
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Return the number of samples received.
+   */
+  public long getSampleCount() {
+    return sampleCount.get();
+  }
+
+  /**
+   * Return the number of windows written.
+   */
+  public long getWindowCount() {
+    return windowCount.get();
+  }
+
+  /**
+   * Return the number of {@code CpuSamples} events dropped because the profiler fell behind.
+   */
+  public synchronized long getDroppedEventCount() {
+    return droppedEventCount + (subscription != null ? subscription.getDroppedCount() : 0);
+  }
+
+  /**
+   * Add the samples of the given {@code CpuSamplesEvent} to the current window.
+   */
+  void add(JsonObject json) {
+    CpuSampleTable table = CpuSamplesDecoder.decode(json, functions);
+    synchronized (this) {
+      samplePeriod = table.getSamplePeriod();
+      int nodeCount = 0;
+      for (int sample = 0; sample < table.getSampleCount(); ++sample) {
+        int userTagId = table.getUserTagId(sample);
+        String userTag = userTagId != -1 ? table.getTag(userTagId) : null;
+        CallTree tree = window.get(userTag);
+        if (tree == null) {
+          tree = new CallTree(functions, false, samplePeriod);
+          window.put(userTag, tree);
+        }
+        nodeCount -= tree.getNodeCount();
+        tree.add(table, sample);
+        nodeCount += tree.getNodeCount();
+      }
+      windowNodeCount += nodeCount;
+      if (windowNodeCount >= maxNodesPerWindow && !rollRequested && executor != null) {
+        // Write the window now, and restart the schedule so that the next window is full length
+        rollRequested = true;
+        rollTask.cancel(false);
+        scheduleRolls(0);
+      }
+    }
+    sampleCount.addAndGet(table.getSampleCount());
+  }
+
+  /**
+   * Roll the window after the given delay, and then once every window length. The caller must
+   * hold the lock on this profiler and check that it is started.
+   */
+  private void scheduleRolls(long delayMillis) {
+    rollTask = executor.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        roll();
+      }
+    }, delayMillis, windowMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Start a new window and write the previous one, unless it is empty.
+   */
+  private void roll() {
+    Map<String, CallTree> trees;
+    long startMillis;
+    long endMillis = System.currentTimeMillis();
+    long period;
+    int sequence;
+    synchronized (this) {
+      trees = window;
+      sequence = windowSequence++;
+      rollRequested = false;
+      startMillis = windowStartMillis;
+      period = samplePeriod;
+      window = new HashMap<>();
+      windowNodeCount = 0;
+      windowStartMillis = endMillis;
+    }
+    if (trees.isEmpty()) {
+      return;
+    }
+    PprofWriter writer = new PprofWriter(functions, period);
+    for (Map.Entry<String, CallTree> entry : trees.entrySet()) {
+      writer.add(entry.getValue(), entry.getKey());
+    }
+    String name = "cpu-" + startMillis + "-" + sequence + ".pb.gz";
+    Path file = directory.resolve(name);
+    Path temp = directory.resolve(name + ".tmp");
+    try {
+      try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+        writer.write(out, TimeUnit.MILLISECONDS.toNanos(startMillis),
+            TimeUnit.MILLISECONDS.toNanos(endMillis - startMillis));
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      windowCount.incrementAndGet();
+    } catch (IOException | RuntimeException e) {
+      Logging.getLogger().logError("Failed to write profile " + file, e);
+    }
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.profile;
+
+import java.nio.IntBuffer;
+import java.util.BitSet;
+
+/**
+ * The samples of a {@code CpuSamples} response or {@code CpuSamplesEvent}, decoded by
+ * {@link CpuSamplesDecoder}.
+ * <p>
+ * Rather than one Java object per sample, the per sample properties are held in primitive arrays
+ * indexed by sample, and stacks are held in compressed sparse row layout: the stack of sample
+ * {@code i}, from the top, is the elements of the frames array from {@code stackStarts[i]} up to
+ * {@code stackStarts[i + 1]}. Frames are indices into the {@link ProfileFunctionTable}, and VM and
+ * user tags are indices into a table of tag names, or {@code -1} if the sample has no such tag.
+ */
+public class CpuSampleTable {
+  private final int samplePeriod;
+  private final int maxStackDepth;
+  private final long timeOriginMicros;
+  private final long timeExtentMicros;
+  private final int pid;
+  private final ProfileFunctionTable functions;
+  private final String[] tags;
+  final int sampleCount;
+  final int[] tids;
+  final long[] timestamps;
+  final int[] vmTags;
+  final int[] userTags;
+  private final BitSet truncated;
+  final int[] stackStarts;
+  final int[] frames;
+  private final int[] identityHashCodes;
+  private final int[] classIds;
+
+  CpuSampleTable(int samplePeriod, int maxStackDepth, long timeOriginMicros, long timeExtentMicros,
+                 int pid, ProfileFunctionTable functions, String[] tags, int sampleCount, int[] tids,
+                 long[] timestamps, int[] vmTags, int[] userTags, BitSet truncated,
+                 int[] stackStarts, int[] frames, int[] identityHashCodes, int[] classIds) {
+    this.samplePeriod = samplePeriod;
+    this.maxStackDepth = maxStackDepth;
+    this.timeOriginMicros = timeOriginMicros;
+    this.timeExtentMicros = timeExtentMicros;
+    this.pid = pid;
+    this.functions = functions;
+    this.tags = tags;
+    this.sampleCount = sampleCount;
+    this.tids = tids;
+    this.timestamps = timestamps;
+    this.vmTags = vmTags;
+    this.userTags = userTags;
+    this.truncated = truncated;
+    this.stackStarts = stackStarts;
+    this.frames = frames;
+    this.identityHashCodes = identityHashCodes;
+    this.classIds = classIds;
+  }
+
+  /**
+   * The sampling rate for the profiler in microseconds.
+   */
+  public int getSamplePeriod() {
+    return samplePeriod;
+  }
+
+  /**
+   * The maximum possible stack depth for samples.
+   */
+  public int getMaxStackDepth() {
+    return maxStackDepth;
+  }
+
+  /**
+   * The start of the period of time in which the samples were collected.
+   */
+  public long getTimeOriginMicros() {
+    return timeOriginMicros;
+  }
+
+  /**
+   * The duration of time covered by the samples.
+   */
+  public long getTimeExtentMicros() {
+    return timeExtentMicros;
+  }
+
+  /**
+   * The process ID for the VM.
+   */
+  public int getPid() {
+    return pid;
+  }
+
+  /**
+   * Return the table of the functions referred to by the stacks.
+   */
+  public ProfileFunctionTable getFunctions() {
+    return functions;
+  }
+
+  /**
+   * Return the number of distinct VM and user tag names.
+   */
+  public int getTagCount() {
+    return tags.length;
+  }
+
+  /**
+   * Return the tag name with the given index.
+   */
+  public String getTag(int tagId) {
+    return tags[tagId];
+  }
+
+  /**
+   * Return the index of the given tag name, or {@code -1} if no sample has that tag.
+   */
+  public int getTagId(String tag) {
+    for (int tagId = 0; tagId < tags.length; ++tagId) {
+      if (tags[tagId].equals(tag)) {
+        return tagId;
+      }
+    }
+    return -1;
+  }
+
+  public int getSampleCount() {
+    return sampleCount;
+  }
+
+  /**
+   * The thread ID representing the thread on which the given sample was collected.
+   */
+  public int getTid(int sample) {
+    return tids[sample];
+  }
+
+  /**
+   * The time the given sample was collected in microseconds.
+   */
+  public long getTimestamp(int sample) {
+    return timestamps[sample];
+  }
+
+  /**
+   * Return the index of the VM tag set when the given sample was collected, or {@code -1} if the
+   * tag was not considered valid.
+   */
+  public int getVmTagId(int sample) {
+    return vmTags[sample];
+  }
+
+  /**
+   * Return the index of the user tag set when the given sample was collected, or {@code -1} if no
+   * user tag was set.
+   */
+  public int getUserTagId(int sample) {
+    return userTags[sample];
+  }
+
+  /**
+   * Return {@code true} if the stack of the given sample was truncated because it was deeper than
+   * {@link #getMaxStackDepth()}.
+   */
+  public boolean isTruncated(int sample) {
+    return truncated.get(sample);
+  }
+
+  public int getStackDepth(int sample) {
+    return stackStarts[sample + 1] - stackStarts[sample];
+  }
+
+  /**
+   * Return the index of the function at the given depth of the stack of the given sample, where
+   * depth {@code 0} is the top of the stack.
+   */
+  public int getFrame(int sample, int depth) {
+    if (depth < 0 || depth >= getStackDepth(sample)) {
+      throw new IndexOutOfBoundsException("Depth " + depth + " of sample " + sample);
+    }
+    return frames[stackStarts[sample] + depth];
+  }
+
+  /**
+   * Return a read-only view of the stack of the given sample, from the top.
+   */
+  public IntBuffer getStack(int sample) {
+    int start = stackStarts[sample];
+    return IntBuffer.wrap(frames, start, stackStarts[sample + 1] - start).slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * Return the total number of frames in all stacks.
+   */
+  public int getFrameCount() {
+    return stackStarts[sampleCount];
+  }
+
+  /**
+   * Return {@code true} if the samples are allocation traces, which have an identity hash code and
+   * class id.
+   */
+  public boolean hasAllocations() {
+    return identityHashCodes != null;
+  }
+
+  /**
+   * Return the identity hash code of the object allocated by the given sample, or {@code 0} if
+   * the samples are not allocation traces.
+   */
+  public int getIdentityHashCode(int sample) {
+    return identityHashCodes != null ? identityHashCodes[sample] : 0;
+  }
+
+  /**
+   * Return the heap snapshot class id of the object allocated by the given sample, or {@code 0} if
+   * the samples are not allocation traces.
+   */
+  public int getClassId(int sample) {
+    return classIds != null ? classIds[sample] : 0;
+  }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.profile;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.dartlang.vm.service.VmService;
+import org.dartlang.vm.service.element.CpuSamples;
+import org.dartlang.vm.service.element.CpuSamplesEvent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Decodes a {@code CpuSamples} response or {@code CpuSamplesEvent} into a {@link CpuSampleTable}.
+ * <p>
+ * A response may be decoded from an already parsed element, or directly from the JSON text with
+ * {@link #request(VmService, String, long, long)}, in which case no JSON tree is built for the
+ * samples. Function indices in stacks are translated from the response's own {@code functions}
+ * list to a {@link ProfileFunctionTable}, which may be shared between responses.
+ */
+public class CpuSamplesDecoder {
+  private final ProfileFunctionTable functions;
+
+  private int samplePeriod;
+  private int maxStackDepth;
+  private long timeOriginMicros;
+  private long timeExtentMicros;
+  private int pid;
+
+  /**
+   * The index in {@link #functions} of each function in the response's {@code functions} list.
+   */
+  private int[] functionIndices = new int[256];
+  private int functionCount;
+
+  private final Map<String, Integer> tagIds = new HashMap<>();
+  private final List<String> tags = new ArrayList<>();
+
+  private int sampleCount;
+  private int[] tids = new int[1024];
+  private long[] timestamps = new long[1024];
+  private int[] vmTags = new int[1024];
+  private int[] userTags = new int[1024];
+  private final BitSet truncated = new BitSet();
+  private int[] stackStarts = new int[1025];
+  private int[] frames = new int[16 * 1024];
+  private int frameCount;
+  private int[] identityHashCodes;
+  private int[] classIds;
+
+  private CpuSamplesDecoder(ProfileFunctionTable functions) {
+    this.functions = functions;
+  }
+
+  public static CpuSampleTable decode(CpuSamples samples) {
+    return decode(samples.getJson(), new ProfileFunctionTable());
+  }
+
+  public static CpuSampleTable decode(CpuSamplesEvent event) {
+    return decode(event.getJson(), new ProfileFunctionTable());
+  }
+
+  /**
+   * Decode the JSON of a {@code CpuSamples} response or {@code CpuSamplesEvent}, adding its
+   * functions to the given table.
+   *
+   * @throws IllegalArgumentException if the samples are malformed
+   */
+  public static CpuSampleTable decode(JsonObject json, ProfileFunctionTable functions) {
+    CpuSamplesDecoder decoder = new CpuSamplesDecoder(functions);
+    for (Map.Entry<String, JsonElement> member : json.entrySet()) {
+      JsonElement value = member.getValue();
+      switch (member.getKey()) {
+        case "samplePeriod":
+          decoder.samplePeriod = value.getAsInt();
+          break;
+        case "maxStackDepth":
+          decoder.maxStackDepth = value.getAsInt();
+          break;
+        case "timeOriginMicros":
+          decoder.timeOriginMicros = value.getAsLong();
+          break;
+        case "timeExtentMicros":
+          decoder.timeExtentMicros = value.getAsLong();
+          break;
+        case "pid":
+          decoder.pid = value.getAsInt();
+          break;
+        case "functions":
+          for (JsonElement function : value.getAsJsonArray()) {
+            decoder.addFunction(function.getAsJsonObject());
+          }
+          break;
+        case "samples":
+          for (JsonElement element : value.getAsJsonArray()) {
+            JsonObject sample = element.getAsJsonObject();
+            decoder.beginSample(sample.get("tid").getAsInt(), sample.get("timestamp").getAsLong(),
+                getString(sample, "vmTag"), getString(sample, "userTag"),
+                sample.has("truncated") && sample.get("truncated").getAsBoolean());
+            JsonElement stack = sample.get("stack");
+            if (stack != null && stack.isJsonArray()) {
+              JsonArray array = stack.getAsJsonArray();
+              for (int index = 0; index < array.size(); ++index) {
+                decoder.addFrame(array.get(index).getAsInt());
+              }
+            }
+            if (sample.has("identityHashCode") || sample.has("classId")) {
+              decoder.setAllocation(sample.has("identityHashCode") ? sample.get("identityHashCode").getAsInt() : 0,
+                  sample.has("classId") ? sample.get("classId").getAsInt() : 0);
+            }
+          }
+          break;
+      }
+    }
+    return decoder.finish();
+  }
+
+  /**
+   * Decode a {@code CpuSamples} response or {@code CpuSamplesEvent} from the given reader,
+   * positioned at the start of the object, adding its functions to the given table.
+   *
+   * @throws IllegalArgumentException if the samples are malformed
+   */
+  public static CpuSampleTable decode(JsonReader reader, ProfileFunctionTable functions) throws IOException {
+    CpuSamplesDecoder decoder = new CpuSamplesDecoder(functions);
+    JsonParser parser = new JsonParser();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "samplePeriod":
+          decoder.samplePeriod = reader.nextInt();
+          break;
+        case "maxStackDepth":
+          decoder.maxStackDepth = reader.nextInt();
+          break;
+        case "timeOriginMicros":
+          decoder.timeOriginMicros = reader.nextLong();
+          break;
+        case "timeExtentMicros":
+          decoder.timeExtentMicros = reader.nextLong();
+          break;
+        case "pid":
+          decoder.pid = reader.nextInt();
+          break;
+        case "functions":
+          reader.beginArray();
+          while (reader.hasNext()) {
+            decoder.addFunction(parser.parse(reader).getAsJsonObject());
+          }
+          reader.endArray();
+          break;
+        case "samples":
+          reader.beginArray();
+          while (reader.hasNext()) {
+            decoder.readSample(reader);
+          }
+          reader.endArray();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return decoder.finish();
+  }
+
+  /**
+   * Request the samples collected for the given isolate in the given time range, decoding them
+   * as they are read from the connection.
+   */
+  public static CompletableFuture<CpuSampleTable> request(VmService vmService, String isolateId,
+                                                          long timeOriginMicros, long timeExtentMicros) {
+    return request(vmService, isolateId, timeOriginMicros, timeExtentMicros, new ProfileFunctionTable());
+  }
+
+  /**
+   * Request the samples collected for the given isolate in the given time range, decoding them
+   * as they are read from the connection and adding their functions to the given table.
+   */
+  public static CompletableFuture<CpuSampleTable> request(VmService vmService, String isolateId,
+                                                          long timeOriginMicros, long timeExtentMicros,
+                                                          final ProfileFunctionTable functions) {
+    JsonObject params = new JsonObject();
+    params.addProperty("isolateId", isolateId);
+    params.addProperty("timeOriginMicros", timeOriginMicros);
+    params.addProperty("timeExtentMicros", timeExtentMicros);
+    return vmService.requestStreaming("getCpuSamples", params, reader -> decode(reader, functions));
+  }
+
+  private void readSample(JsonReader reader) throws IOException {
+    int tid = 0;
+    long timestamp = 0;
+    String vmTag = null;
+    String userTag = null;
+    boolean isTruncated = false;
+    boolean hasAllocation = false;
+    int identityHashCode = 0;
+    int classId = 0;
+    int stackStart = frameCount;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "tid":
+          tid = reader.nextInt();
+          break;
+        case "timestamp":
+          timestamp = reader.nextLong();
+          break;
+        case "vmTag":
+          vmTag = nextString(reader);
+          break;
+        case "userTag":
+          userTag = nextString(reader);
+          break;
+        case "truncated":
+          isTruncated = reader.nextBoolean();
+          break;
+        case "stack":
+          // Frames are collected before the sample's other properties may have been read
+          reader.beginArray();
+          while (reader.hasNext()) {
+            addFrame(reader.nextInt());
+          }
+          reader.endArray();
+          break;
+        case "identityHashCode":
+          identityHashCode = reader.nextInt();
+          hasAllocation = true;
+          break;
+        case "classId":
+          classId = reader.nextInt();
+          hasAllocation = true;
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    int stackEnd = frameCount;
+    frameCount = stackStart;
+    beginSample(tid, timestamp, vmTag, userTag, isTruncated);
+    frameCount = stackEnd;
+    if (hasAllocation) {
+      setAllocation(identityHashCode, classId);
+    }
+  }
+
+  private void addFunction(JsonObject function) {
+    if (functionCount == functionIndices.length) {
+      functionIndices = Arrays.copyOf(functionIndices, functionCount * 2);
+    }
+    functionIndices[functionCount++] = functions.intern(function);
+  }
+
+  /**
+   * Start a new sample, whose frames are those added by {@link #addFrame(int)} until the next
+   * sample is started.
+   */
+  private void beginSample(int tid, long timestamp, String vmTag, String userTag, boolean isTruncated) {
+    if (sampleCount == tids.length) {
+      int capacity = sampleCount * 2;
+      tids = Arrays.copyOf(tids, capacity);
+      timestamps = Arrays.copyOf(timestamps, capacity);
+      vmTags = Arrays.copyOf(vmTags, capacity);
+      userTags = Arrays.copyOf(userTags, capacity);
+      stackStarts = Arrays.copyOf(stackStarts, capacity + 1);
+      if (identityHashCodes != null) {
+        identityHashCodes = Arrays.copyOf(identityHashCodes, capacity);
+        classIds = Arrays.copyOf(classIds, capacity);
+      }
+    }
+    tids[sampleCount] = tid;
+    timestamps[sampleCount] = timestamp;
+    vmTags[sampleCount] = tagId(vmTag);
+    userTags[sampleCount] = tagId(userTag);
+    if (isTruncated) {
+      truncated.set(sampleCount);
+    }
+    stackStarts[sampleCount] = frameCount;
+    ++sampleCount;
+  }
+
+  private void addFrame(int localIndex) {
+    if (frameCount == frames.length) {
+      frames = Arrays.copyOf(frames, frameCount * 2);
+    }
+    frames[frameCount++] = localIndex;
+  }
+
+  private void setAllocation(int identityHashCode, int classId) {
+    if (identityHashCodes == null) {
+      identityHashCodes = new int[tids.length];
+      classIds = new int[tids.length];
+    }
+    identityHashCodes[sampleCount - 1] = identityHashCode;
+    classIds[sampleCount - 1] = classId;
+  }
+
+  private int tagId(String tag) {
+    if (tag == null) {
+      return -1;
+    }
+    Integer id = tagIds.get(tag);
+    if (id == null) {
+      id = tags.size();
+      tagIds.put(tag, id);
+      tags.add(tag);
+    }
+    return id;
+  }
+
+  private CpuSampleTable finish() {
+    // The functions list may follow the samples, so frames are translated once both are known
+    for (int index = 0; index < frameCount; ++index) {
+      int localIndex = frames[index];
+      if (localIndex < 0 || localIndex >= functionCount) {
+        throw new IllegalArgumentException("Stack refers to function " + localIndex + " of " + functionCount);
+      }
+      frames[index] = functionIndices[localIndex];
+    }
+    stackStarts[sampleCount] = frameCount;
+    return new CpuSampleTable(samplePeriod, maxStackDepth, timeOriginMicros, timeExtentMicros, pid,
+        functions, tags.toArray(new String[tags.size()]), sampleCount,
+        Arrays.copyOf(tids, sampleCount), Arrays.copyOf(timestamps, sampleCount),
+        Arrays.copyOf(vmTags, sampleCount), Arrays.copyOf(userTags, sampleCount), truncated,
+        Arrays.copyOf(stackStarts, sampleCount + 1), Arrays.copyOf(frames, frameCount),
+        identityHashCodes != null ? Arrays.copyOf(identityHashCodes, sampleCount) : null,
+        classIds != null ? Arrays.copyOf(classIds, sampleCount) : null);
+  }
+
+  private static String nextString(JsonReader reader) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return null;
+    }
+    return reader.nextString();
+  }
+
+  private static String getString(JsonObject json, String name) {
+    JsonElement value = json.get(name);
+    return value != null && value.isJsonPrimitive() ? value.getAsString() : null;
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.profile;
+
+import org.dartlang.vm.service.VmService;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Polls {@code getCpuSamples} for one isolate, requesting only the samples collected since the
+ * previous poll.
+ * <p>
+ * Every response repeats the functions referred to by its samples, so the sampler decodes all
+ * responses into one {@link ProfileFunctionTable}. A function is resolved once, when it is first
+ * seen, and keeps the same index for the life of the sampler, so the tables returned by successive
+ * polls can be aggregated together, for example with {@link CallTree#merge(CallTree)}.
+ * <p>
+ * A sample whose timestamp equals that of the last sample of the previous poll, but which was not
+ * yet available when that poll was answered, is not returned.
+ */
+public class IncrementalSampler {
+  private final VmService vmService;
+  private final String isolateId;
+  private final ProfileFunctionTable functions;
+
+  // Guarded by this
+  private long nextOriginMicros;
+  private CompletableFuture<CpuSampleTable> pending;
+  private long sampleCount;
+  private long pollCount;
+
+  /**
+   * Create a sampler whose first poll returns all of the samples held by the VM.
+   */
+  public IncrementalSampler(VmService vmService, String isolateId) {
+    this(vmService, isolateId, new ProfileFunctionTable(), 0);
+  }
+
+  /**
+   * Create a sampler which adds functions to the given table, for example to share it with
+   * samplers for other isolates, and whose first poll returns the samples collected at or after
+   * the given time.
+   */
+  public IncrementalSampler(VmService vmService, String isolateId, ProfileFunctionTable functions,
+                            long startMicros) {
+    this.vmService = vmService;
+    this.isolateId = isolateId;
+    this.functions = functions;
+    this.nextOriginMicros = startMicros;
+  }
+
+  /**
+   * Request the samples collected since the last sample returned by the previous poll. If a poll
+   * is already in progress, return its future rather than requesting the same samples twice.
+   */
+  public synchronized CompletableFuture<CpuSampleTable> poll() {
+    if (pending != null) {
+      return pending;
+    }
+    final CompletableFuture<CpuSampleTable> future = CpuSamplesDecoder.request(vmService, isolateId,
+        nextOriginMicros, Long.MAX_VALUE - nextOriginMicros, functions);
+    pending = future;
+    future.whenComplete((table, e) -> {
+      synchronized (IncrementalSampler.this) {
+        pending = null;
+        if (table != null) {
+          ++pollCount;
+          sampleCount += table.getSampleCount();
+          for (int sample = 0; sample < table.getSampleCount(); ++sample) {
+            nextOriginMicros = Math.max(nextOriginMicros, table.getTimestamp(sample) + 1);
+          }
+        }
+      }
+    });
+    return future;
+  }
+
+  public String getIsolateId() {
+    return isolateId;
+  }
+
+  /**
+   * Return the table of every function seen by this sampler.
+   */
+  public ProfileFunctionTable getFunctions() {
+    return functions;
+  }
+
+  /**
+   * Return the time from which the next poll will request samples.
+   */
+  public synchronized long getNextOriginMicros() {
+    return nextOriginMicros;
+  }
+
+  /**
+   * Return the number of samples returned by all polls.
+   */
+  public synchronized long getSampleCount() {
+    return sampleCount;
+  }
+
+  /**
+   * Return the number of polls which have completed successfully.
+   */
+  public synchronized long getPollCount() {
+    return pollCount;
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.profile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes call trees as a profile in the pprof protocol buffer format, as read by
+ * {@code go tool pprof} and most profile viewers. The output is not compressed; pprof files are
+ * conventionally gzipped.
+ * <p>
+ * Each function becomes one function and one location, and each node of a top-down
+ * {@link CallTree} with a non-zero self count becomes one sample, with values for the number of
+ * samples and the estimated CPU time. Samples of trees added with a user tag are labelled
+ * {@code userTag}.
+ */
+public class PprofWriter {
+  private final ProfileFunctionTable functions;
+  private final long periodMicros;
+  private final List<CallTree> trees = new ArrayList<>();
+  private final List<String> userTags = new ArrayList<>();
+
+  private final Map<String, Integer> strings = new HashMap<>();
+  private final List<String> stringTable = new ArrayList<>();
+
+  /**
+   * @param functions    the functions of the trees to be written
+   * @param periodMicros the sampling rate for the profiler in microseconds
+   */
+  public PprofWriter(ProfileFunctionTable functions, long periodMicros) {
+    this.functions = functions;
+    this.periodMicros = periodMicros;
+    string("");
+  }
+
+  /**
+   * Add the samples of the given top-down tree.
+   *
+   * @param userTag the user tag of the samples in the tree, or {@code null} if they are not
+   *                labelled
+   * @throws IllegalArgumentException if the tree is bottom-up or has other functions
+   */
+  public void add(CallTree tree, String userTag) {
+    if (tree.isBottomUp() || tree.getFunctions() != functions) {
+      throw new IllegalArgumentException("Expected a top-down tree of the same functions");
+    }
+    trees.add(tree);
+    userTags.add(userTag);
+  }
+
+  /**
+   * Write the profile.
+   *
+   * @param timeNanos     the time at which the profile starts, in nanoseconds since the epoch
+   * @param durationNanos the duration of the profile in nanoseconds
+   */
+  public void write(OutputStream out, long timeNanos, long durationNanos) throws IOException {
+    ProtoWriter profile = new ProtoWriter();
+    ProtoWriter message = new ProtoWriter();
+
+    // Sample types: samples/count and cpu/nanoseconds
+    profile.writeMessage(1, valueType(message, "samples", "count"));
+    profile.writeMessage(1, valueType(message, "cpu", "nanoseconds"));
+
+    // Samples, leaf first
+    long periodNanos = periodMicros * 1000;
+    BitSet usedFunctions = new BitSet();
+    ProtoWriter packed = new ProtoWriter();
+    for (int index = 0; index < trees.size(); ++index) {
+      CallTree tree = trees.get(index);
+      String userTag = userTags.get(index);
+      for (int node = 1; node < tree.getNodeCount(); ++node) {
+        long count = tree.getSelfCount(node);
+        if (count == 0) {
+          continue;
+        }
+        message.reset();
+        packed.reset();
+        for (int frame = node; frame != CallTree.ROOT; frame = tree.getParent(frame)) {
+          int function = tree.getFunction(frame);
+          usedFunctions.set(function);
+          packed.writeVarint(function + 1);
+        }
+        message.writeBytes(1, packed);
+        packed.reset();
+        packed.writeVarint(count);
+        packed.writeVarint(count * periodNanos);
+        message.writeBytes(2, packed);
+        if (userTag != null) {
+          packed.reset();
+          packed.writeVarint(1, string("userTag"));
+          packed.writeVarint(2, string(userTag));
+          message.writeMessage(3, packed);
+        }
+        profile.writeMessage(2, message);
+      }
+    }
+
+    // Locations and functions, identified by function index + 1
+    for (int function = usedFunctions.nextSetBit(0); function >= 0; function = usedFunctions.nextSetBit(function + 1)) {
+      packed.reset();
+      packed.writeVarint(1, function + 1);
+      message.reset();
+      message.writeVarint(1, function + 1);
+      message.writeMessage(4, packed);
+      profile.writeMessage(4, message);
+    }
+    for (int function = usedFunctions.nextSetBit(0); function >= 0; function = usedFunctions.nextSetBit(function + 1)) {
+      String name = functions.getName(function);
+      String resolvedUrl = functions.getResolvedUrl(function);
+      int nameIndex = string(name != null ? name : "<unknown>");
+      message.reset();
+      message.writeVarint(1, function + 1);
+      message.writeVarint(2, nameIndex);
+      message.writeVarint(3, nameIndex);
+      message.writeVarint(4, string(resolvedUrl != null ? resolvedUrl : ""));
+      profile.writeMessage(5, message);
+    }
+
+    // Period type cpu/nanoseconds, registering its strings before the string table is written
+    message.reset();
+    valueType(message, "cpu", "nanoseconds");
+    byte[] periodType = message.toByteArray();
+
+    for (String string : stringTable) {
+      profile.writeString(6, string);
+    }
+    profile.writeVarint(9, timeNanos);
+    profile.writeVarint(10, durationNanos);
+    profile.writeTag(11, 2);
+    profile.writeVarint(periodType.length);
+    profile.write(periodType, 0, periodType.length);
+    profile.writeVarint(12, periodNanos);
+    profile.writeTo(out);
+  }
+
+  private ProtoWriter valueType(ProtoWriter message, String type, String unit) {
+    message.reset();
+    message.writeVarint(1, string(type));
+    message.writeVarint(2, string(unit));
+    return message;
+  }
+
+  private int string(String string) {
+    Integer index = strings.get(string);
+    if (index == null) {
+      index = stringTable.size();
+      strings.put(string, index);
+      stringTable.add(string);
+    }
+    return index;
+  }
+
+  /**
+   * A buffer of protocol buffer wire format fields.
+   */
+  private static class ProtoWriter extends ByteArrayOutputStream {
+    void writeTag(int field, int wireType) {
+      writeVarint((field << 3) | wireType);
+    }
+
+    void writeVarint(long value) {
+      while ((value & ~0x7FL) != 0) {
+        write((int) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      write((int) value);
+    }
+
+    void writeVarint(int field, long value) {
+      writeTag(field, 0);
+      writeVarint(value);
+    }
+
+    void writeBytes(int field, ProtoWriter bytes) {
+      writeTag(field, 2);
+      writeVarint(bytes.size());
+      write(bytes.buf, 0, bytes.size());
+    }
+
+    void writeMessage(int field, ProtoWriter message) {
+      writeBytes(field, message);
+    }
+
+    void writeString(int field, String string) {
+      byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+      writeTag(field, 2);
+      writeVarint(bytes.length);
+      write(bytes, 0, bytes.length);
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.profile;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A table of the functions seen in CPU samples, in which each distinct function appears once and
+ * is identified by its index.
+ * <p>
+ * The VM identifies functions in a {@code CpuSamples} response by their index in that response's
+ * {@code functions} list, so the same function has different indices in different responses. A
+ * table may be shared by the {@link CpuSampleTable}s decoded from several responses so that their
+ * function indices can be compared directly.
+ */
+public class ProfileFunctionTable {
+  private final Map<String, Integer> indices = new HashMap<>();
+
+  private String[] names = new String[64];
+  private String[] kinds = new String[64];
+  private String[] resolvedUrls = new String[64];
+  private JsonObject[] functions = new JsonObject[64];
+  private int size;
+
+  /**
+   * Return the index of the given function, adding it if it is not yet in the table.
+   *
+   * @param json a {@code ProfileFunction} as found in a {@code CpuSamples} response, or a
+   *             {@code @Function}, {@code @Object} or {@code NativeFunction} as found in a
+   *             {@code CpuSamplesEvent}
+   */
+  public synchronized int intern(JsonObject json) {
+    JsonObject function = json;
+    String kind = null;
+    String resolvedUrl = null;
+    JsonElement nested = json.get("function");
+    if (nested != null && nested.isJsonObject()) {
+      function = nested.getAsJsonObject();
+      kind = getString(json, "kind");
+      resolvedUrl = getString(json, "resolvedUrl");
+    }
+    String type = getString(function, "type");
+    String id = getString(function, "id");
+    String name = getString(function, "name");
+    String key = id != null ? id : type + ":" + name;
+    Integer index = indices.get(key);
+    if (index != null) {
+      return index;
+    }
+    if (size == names.length) {
+      int capacity = size * 2;
+      names = Arrays.copyOf(names, capacity);
+      kinds = Arrays.copyOf(kinds, capacity);
+      resolvedUrls = Arrays.copyOf(resolvedUrls, capacity);
+      functions = Arrays.copyOf(functions, capacity);
+    }
+    if (kind == null) {
+      kind = "NativeFunction".equals(type) || "@NativeFunction".equals(type) ? "Native" : "Dart";
+    }
+    names[size] = name;
+    kinds[size] = kind;
+    resolvedUrls[size] = resolvedUrl;
+    functions[size] = function;
+    indices.put(key, size);
+    return size++;
+  }
+
+  /**
+   * Return the number of functions in the table.
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  public synchronized String getName(int index) {
+    checkIndex(index);
+    return names[index];
+  }
+
+  /**
+   * Return the kind of the function with the given index, such as {@code Dart}, {@code Native},
+   * {@code Stub} or {@code Tag}.
+   */
+  public synchronized String getKind(int index) {
+    checkIndex(index);
+    return kinds[index];
+  }
+
+  /**
+   * Return the resolved URL of the script containing the function with the given index, or
+   * {@code null} if it is not known.
+   */
+  public synchronized String getResolvedUrl(int index) {
+    checkIndex(index);
+    return resolvedUrls[index];
+  }
+
+  /**
+   * Return the JSON of the function reference with the given index, a {@code @Function},
+   * {@code @Object} or {@code NativeFunction}.
+   */
+  public synchronized JsonObject getFunction(int index) {
+    checkIndex(index);
+    return functions[index];
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Function index " + index + ", size " + size);
+    }
+  }
+
+  private static String getString(JsonObject json, String name) {
+    JsonElement value = json.get(name);
+    return value != null && value.isJsonPrimitive() ? value.getAsString() : null;
+  }
+}
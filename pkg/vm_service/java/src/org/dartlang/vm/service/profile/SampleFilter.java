@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.profile;
+
+/**
+ * Selects the CPU samples to aggregate by tag and time. Filters are immutable; each
+ * {@code with} method returns a new filter with an additional condition.
+ */
+public class SampleFilter {
+  /**
+   * A filter which accepts every sample.
+   */
+  public static final SampleFilter ALL = new SampleFilter(null, null, Long.MIN_VALUE, Long.MAX_VALUE);
+
+  private final String userTag;
+  private final String vmTag;
+  private final long startMicros;
+  private final long endMicros;
+
+  private SampleFilter(String userTag, String vmTag, long startMicros, long endMicros) {
+    this.userTag = userTag;
+    this.vmTag = vmTag;
+    this.startMicros = startMicros;
+    this.endMicros = endMicros;
+  }
+
+  /**
+   * Return a filter which also requires the given user tag.
+   */
+  public SampleFilter withUserTag(String tag) {
+    return new SampleFilter(tag, vmTag, startMicros, endMicros);
+  }
+
+  /**
+   * Return a filter which also requires the given VM tag.
+   */
+  public SampleFilter withVmTag(String tag) {
+    return new SampleFilter(userTag, tag, startMicros, endMicros);
+  }
+
+  /**
+   * Return a filter which also requires samples to have been collected at or after
+   * {@code startMicros} and before {@code endMicros}.
+   */
+  public SampleFilter withTimeRange(long startMicros, long endMicros) {
+    return new SampleFilter(userTag, vmTag, Math.max(startMicros, this.startMicros),
+        Math.min(endMicros, this.endMicros));
+  }
+
+  /**
+   * Return the filter's conditions resolved against the tags of the given table.
+   */
+  Matcher matcher(CpuSampleTable table) {
+    return new Matcher(table);
+  }
+
+  class Matcher {
+    private final CpuSampleTable table;
+    private final int userTagId;
+    private final int vmTagId;
+
+    /**
+     * {@code true} if the filter names a tag which no sample in the table has.
+     */
+    private final boolean empty;
+
+    Matcher(CpuSampleTable table) {
+      this.table = table;
+      this.userTagId = userTag != null ? table.getTagId(userTag) : -1;
+      this.vmTagId = vmTag != null ? table.getTagId(vmTag) : -1;
+      this.empty = (userTag != null && userTagId == -1) || (vmTag != null && vmTagId == -1)
+          || startMicros >= endMicros;
+    }
+
+    boolean accepts(int sample) {
+      if (empty) {
+        return false;
+      }
+      if (userTag != null && table.userTags[sample] != userTagId) {
+        return false;
+      }
+      if (vmTag != null && table.vmTags[sample] != vmTagId) {
+        return false;
+      }
+      long timestamp = table.timestamps[sample];
+      return timestamp >= startMicros && timestamp < endMicros;
+    }
+  }
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.timeline;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.dartlang.vm.service.EventPublisher;
+import org.dartlang.vm.service.VmService;
+import org.dartlang.vm.service.element.Event;
+import org.dartlang.vm.service.logging.Logging;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the most recent VM timeline events in memory and writes them to a Chrome trace event
+ * JSON file when a {@link Trigger} fires, so that the events leading up to a problem such as a
+ * slow frame can be examined without recording the whole timeline to disk.
+ * <p>
+ * Events arrive on the {@link VmService#TIMELINE_STREAM_ID} stream and are kept in a fixed size
+ * ring buffer, which holds at most {@code maxEvents} events and drops events more than
+ * {@code windowMicros} older than the newest. Triggers are tested against the events on the
+ * {@link VmService#TIMELINE_STREAM_ID} and {@link VmService#EXTENSION_STREAM_ID} streams. Events
+ * are received through {@link EventPublisher} subscriptions, so recording does not delay other
+ * events or responses, and snapshots are written on a separate thread, which runs from
+ * {@link #start(List)} until {@link #stop()}.
+ */
+public class FlightRecorder {
+  /**
+   * Decides whether an event should cause a snapshot.
+   */
+  public interface Trigger {
+    /**
+     * Return {@code true} if the given event should cause a snapshot. Events on different streams
+     * may be tested concurrently.
+     */
+    boolean fired(String streamId, Event event);
+  }
+
+  /**
+   * Return a trigger which fires when a {@code Flutter.Frame} extension event reports that a frame
+   * took longer than the given number of microseconds.
+   */
+  public static Trigger frameOverBudget(final long budgetMicros) {
+    return new Trigger() {
+      @Override
+      public boolean fired(String streamId, Event event) {
+        JsonObject json = event.getJson();
+        if (!isExtensionEvent(json, "Flutter.Frame")) {
+          return false;
+        }
+        JsonElement data = json.get("extensionData");
+        if (data == null || !data.isJsonObject()) {
+          return false;
+        }
+        JsonElement elapsed = data.getAsJsonObject().get("elapsed");
+        return elapsed != null && elapsed.isJsonPrimitive() && elapsed.getAsLong() > budgetMicros;
+      }
+    };
+  }
+
+  /**
+   * Return a trigger which fires on every extension event of the given kind, such as one posted
+   * by {@code dart:developer}'s {@code postEvent}.
+   */
+  public static Trigger extensionEvent(final String extensionKind) {
+    return new Trigger() {
+      @Override
+      public boolean fired(String streamId, Event event) {
+        return isExtensionEvent(event.getJson(), extensionKind);
+      }
+    };
+  }
+
+  private static final int EVENT_QUEUE_CAPACITY = 1024;
+
+  private final VmService vmService;
+  private final Path directory;
+  private final long windowMicros;
+  private final List<Trigger> triggers = new CopyOnWriteArrayList<>();
+  private volatile long minSnapshotIntervalMillis = 10000;
+  private volatile long postTriggerDelayMillis = 1000;
+
+  // The ring buffer of serialized events and their timestamps, guarded by this
+  private final String[] events;
+  private final long[] timestamps;
+  private int first;
+  private int size;
+  private long newestMicros = Long.MIN_VALUE;
+  private long recordedCount;
+  private long evictedCount;
+  private long lastSnapshotMillis = Long.MIN_VALUE;
+  private int snapshotCount;
+  private final List<EventPublisher.EventSubscription> subscriptions = new ArrayList<>();
+  private ScheduledExecutorService executor;
+
+  /**
+   * @param directory    the directory to which snapshots are written, which must exist
+   * @param windowMicros the length of time before the newest event for which events are kept
+   * @param maxEvents    the maximum number of events to keep
+   */
+  public FlightRecorder(VmService vmService, Path directory, long windowMicros, int maxEvents) {
+    if (maxEvents < 1) {
+      throw new IllegalArgumentException("maxEvents must be positive: " + maxEvents);
+    }
+    this.vmService = vmService;
+    this.directory = directory;
+    this.windowMicros = windowMicros;
+    this.events = new String[maxEvents];
+    this.timestamps = new long[maxEvents];
+  }
+
+  public void addTrigger(Trigger trigger) {
+    triggers.add(trigger);
+  }
+
+  public void removeTrigger(Trigger trigger) {
+    triggers.remove(trigger);
+  }
+
+  /**
+   * Set the minimum time between snapshots caused by triggers, so that a burst of slow frames
+   * causes one snapshot. Snapshots requested by {@link #snapshot()} are not limited.
+   */
+  public void setMinSnapshotInterval(long millis) {
+    minSnapshotIntervalMillis = millis;
+  }
+
+  /**
+   * Set the time to wait after a trigger fires before copying the buffer, so that the snapshot
+   * includes the timeline events of the slow frame or other problem, which the VM may send after
+   * the event that fired the trigger. The default is one second.
+   */
+  public void setPostTriggerDelay(long millis) {
+    if (millis < 0) {
+      throw new IllegalArgumentException("Negative delay: " + millis);
+    }
+    postTriggerDelayMillis = millis;
+  }
+
+  /**
+   * Enable recording of the given timeline streams, such as {@code Dart}, {@code Embedder} and
+   * {@code GC}, and start recording. The future completes once the VM has accepted the requests.
+   */
+  public CompletableFuture<Void> start(List<String> recordedStreams) {
+    synchronized (this) {
+      if (!subscriptions.isEmpty()) {
+        throw new IllegalStateException("Already started");
+      }
+      executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "VM service flight recorder");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      for (final String streamId : new String[]{VmService.TIMELINE_STREAM_ID, VmService.EXTENSION_STREAM_ID}) {
+        subscriptions.add(vmService.getEventPublisher(streamId).subscribe(new Flow.Subscriber<Event>() {
+          @Override
+          public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+          }
+
+          @Override
+          public void onNext(Event event) {
+            received(streamId, event);
+          }
+
+          @Override
+          public void onError(Throwable e) {
+            Logging.getLogger().logError("Flight recorder stream failed", e);
+          }
+
+          @Override
+          public void onComplete() {
+          }
+        }, EVENT_QUEUE_CAPACITY, EventPublisher.OverflowPolicy.DROP_OLDEST));
+      }
+    }
+    return vmService.setVMTimelineFlagsAsync(recordedStreams)
+        .thenCompose(success -> vmService.streamListenIfNeededAsync(VmService.TIMELINE_STREAM_ID))
+        .thenCompose(subscribed -> vmService.streamListenIfNeededAsync(VmService.EXTENSION_STREAM_ID))
+        .thenApply(subscribed -> null);
+  }
+
+  /**
+   * Stop recording. Snapshots already requested are still written, and recording may be started
+   * again. The VM keeps recording the timeline streams enabled by {@link #start(List)}, since the
+   * timeline flags are shared by all clients and this recorder does not know their previous values.
+   */
+  public synchronized void stop() {
+    for (EventPublisher.EventSubscription subscription : subscriptions) {
+      subscription.cancel();
+    }
+    subscriptions.clear();
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  /**
+   * Write the recorded events to a new file, returning its path. The future completes
+   * exceptionally with an {@link IllegalStateException} if the recorder is not started.
+   */
+  public CompletableFuture<Path> snapshot() {
+    synchronized (this) {
+      if (executor == null) {
+        return CompletableFuture.failedFuture(new IllegalStateException("Not started"));
+      }
+      return snapshot(0);
+    }
+  }
+
+  /**
+   * Copy the recorded events after the given delay and write them to a new file. The caller must
+   * hold the lock on this recorder and check that it is started.
+   */
+  private CompletableFuture<Path> snapshot(long delayMillis) {
+    final int sequence = snapshotCount++;
+    final CompletableFuture<Path> result = new CompletableFuture<>();
+    executor.schedule(() -> {
+      String[] snapshot;
+      synchronized (this) {
+        snapshot = copyEvents();
+      }
+      try {
+        result.complete(write(snapshot, sequence));
+      } catch (IOException | RuntimeException e) {
+        result.completeExceptionally(e);
+      }
+    }, delayMillis, TimeUnit.MILLISECONDS);
+    return result;
+  }
+
+  /**
+   * Return the number of events recorded, including those since dropped from the buffer.
+   */
+  public synchronized long getRecordedCount() {
+    return recordedCount;
+  }
+
+  /**
+   * Return the number of events dropped from the buffer because it was full or they were too old.
+   */
+  public synchronized long getEvictedCount() {
+    return evictedCount;
+  }
+
+  /**
+   * Return the number of events in the buffer.
+   */
+  public synchronized int getBufferedCount() {
+    return size;
+  }
+
+  /**
+   * Return the number of snapshots requested.
+   */
+  public synchronized int getSnapshotCount() {
+    return snapshotCount;
+  }
+
+  /**
+   * Return the number of stream events dropped because the recorder fell behind.
+   */
+  public synchronized long getDroppedEventCount() {
+    long count = 0;
+    for (EventPublisher.EventSubscription subscription : subscriptions) {
+      count += subscription.getDroppedCount();
+    }
+    return count;
+  }
+
+  void received(String streamId, Event event) {
+    JsonElement timelineEvents = event.getJson().get("timelineEvents");
+    if (timelineEvents != null && timelineEvents.isJsonArray()) {
+      synchronized (this) {
+        for (JsonElement timelineEvent : timelineEvents.getAsJsonArray()) {
+          record(timelineEvent);
+        }
+      }
+    }
+    for (Trigger trigger : triggers) {
+      boolean fired;
+      try {
+        fired = trigger.fired(streamId, event);
+      } catch (RuntimeException e) {
+        Logging.getLogger().logError("Exception testing flight recorder trigger", e);
+        continue;
+      }
+      if (fired) {
+        long now = System.currentTimeMillis();
+        CompletableFuture<Path> snapshot;
+        synchronized (this) {
+          if (executor == null) {
+            // Stopped while this event was being delivered
+            return;
+          }
+          if (lastSnapshotMillis != Long.MIN_VALUE && now - lastSnapshotMillis < minSnapshotIntervalMillis) {
+            return;
+          }
+          lastSnapshotMillis = now;
+          snapshot = snapshot(postTriggerDelayMillis);
+        }
+        snapshot.exceptionally(e -> {
+          Logging.getLogger().logError("Failed to write flight recorder snapshot", e);
+          return null;
+        });
+        return;
+      }
+    }
+  }
+
+  private void record(JsonElement timelineEvent) {
+    long timestamp = Long.MIN_VALUE;
+    if (timelineEvent.isJsonObject()) {
+      JsonElement ts = timelineEvent.getAsJsonObject().get("ts");
+      if (ts != null && ts.isJsonPrimitive()) {
+        timestamp = ts.getAsLong();
+      }
+    }
+    if (size == events.length) {
+      events[first] = null;
+      first = (first + 1) % events.length;
+      --size;
+      ++evictedCount;
+    }
+    int index = (first + size) % events.length;
+    events[index] = timelineEvent.toString();
+    timestamps[index] = timestamp;
+    ++size;
+    ++recordedCount;
+    if (timestamp > newestMicros) {
+      newestMicros = timestamp;
+    }
+
+    // Drop events which have fallen out of the window. Events may arrive slightly out of order,
+    // so this only looks at the oldest, and events without a timestamp are kept.
+    while (size > 0 && timestamps[first] != Long.MIN_VALUE && timestamps[first] < newestMicros - windowMicros) {
+      events[first] = null;
+      first = (first + 1) % events.length;
+      --size;
+      ++evictedCount;
+    }
+  }
+
+  private String[] copyEvents() {
+    String[] copy = new String[size];
+    for (int index = 0; index < size; ++index) {
+      copy[index] = events[(first + index) % events.length];
+    }
+    return copy;
+  }
+
+  private Path write(String[] snapshot, int sequence) throws IOException {
+    String name = "timeline-" + System.currentTimeMillis() + "-" + sequence + ".json";
+    Path file = directory.resolve(name);
+    Path temp = directory.resolve(name + ".tmp");
+    try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+      writer.write("{\"traceEvents\":[");
+      for (int index = 0; index < snapshot.length; ++index) {
+        if (index > 0) {
+          writer.write(",\n");
+        }
+        writer.write(snapshot[index]);
+      }
+      writer.write("]}\n");
+    }
+    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+    return file;
+  }
+
+
+  private static boolean isExtensionEvent(JsonObject json, String extensionKind) {
+    JsonElement kind = json.get("extensionKind");
+    return kind != null && kind.isJsonPrimitive() && extensionKind.equals(kind.getAsString());
+  }
+}
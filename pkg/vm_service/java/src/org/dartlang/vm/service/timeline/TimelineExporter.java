@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.timeline;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.dartlang.vm.service.VmService;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Exports the VM timeline to a file, either as a Chrome trace event JSON file from
+ * {@code getVMTimeline} or as a Perfetto trace protocol buffer file from
+ * {@code getPerfettoVMTimeline}.
+ * <p>
+ * The timeline is requested in consecutive windows of {@code windowMicros}, one at a time, and
+ * each response is written to the file as it is read from the connection, so memory is bounded
+ * by the size of one window however long the capture is. Windows are written on the thread
+ * reading from the VM, which delays other responses for as long as the file takes to write.
+ * <p>
+ * In the JSON format, an event is written by the window containing its timestamp, so events
+ * returned by two windows are written once, and metadata events such as thread names are written
+ * once. Perfetto traces are concatenated; Perfetto merges the track descriptors repeated by each
+ * window.
+ */
+public class TimelineExporter implements Closeable {
+  public enum Format {
+    /**
+     * The Chrome trace event format, a JSON object with a {@code traceEvents} array.
+     */
+    CHROME_JSON,
+
+    /**
+     * The Perfetto trace format, a {@code Trace} protocol buffer.
+     */
+    PERFETTO
+  }
+
+  /**
+   * The default window length, one second.
+   */
+  public static final long DEFAULT_WINDOW_MICROS = 1000000;
+
+  private final VmService vmService;
+  private final Format format;
+  private final long windowMicros;
+  private final OutputStream out;
+  private final JsonWriter jsonWriter;
+  private final Gson gson = new Gson();
+
+  /**
+   * The metadata events written so far, which are repeated by every window.
+   */
+  private final Set<String> metadataEvents = new HashSet<>();
+
+  // Guarded by this
+  private long eventCount;
+  private long windowCount;
+  private boolean closed;
+
+  public TimelineExporter(VmService vmService, Path file, Format format) throws IOException {
+    this(vmService, file, format, DEFAULT_WINDOW_MICROS);
+  }
+
+  public TimelineExporter(VmService vmService, Path file, Format format, long windowMicros) throws IOException {
+    if (windowMicros <= 0) {
+      throw new IllegalArgumentException("windowMicros must be positive: " + windowMicros);
+    }
+    this.vmService = vmService;
+    this.format = format;
+    this.windowMicros = windowMicros;
+    this.out = new BufferedOutputStream(Files.newOutputStream(file));
+    if (format == Format.CHROME_JSON) {
+      jsonWriter = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+      jsonWriter.beginObject();
+      jsonWriter.name("traceEvents");
+      jsonWriter.beginArray();
+    } else {
+      jsonWriter = null;
+    }
+  }
+
+  /**
+   * Export the timeline from {@code startMicros} up to the current time of the VM's timeline
+   * clock, as returned by {@code getVMTimelineMicros}.
+   */
+  public CompletableFuture<Void> exportSince(final long startMicros) {
+    return vmService.getVMTimelineMicrosAsync()
+        .thenCompose(now -> export(startMicros, now.getTimestamp() + 1));
+  }
+
+  /**
+   * Export the timeline from {@code startMicros} up to {@code endMicros}, on the VM's timeline
+   * clock. The future completes once the last window has been written; call {@link #close()} to
+   * finish the file.
+   */
+  public CompletableFuture<Void> export(final long startMicros, final long endMicros) {
+    if (startMicros >= endMicros) {
+      return CompletableFuture.completedFuture(null);
+    }
+    final long extentMicros = Math.min(windowMicros, endMicros - startMicros);
+    return exportWindow(startMicros, extentMicros)
+        .thenCompose(v -> export(startMicros + extentMicros, endMicros));
+  }
+
+  /**
+   * Return the number of JSON trace events written.
+   */
+  public synchronized long getEventCount() {
+    return eventCount;
+  }
+
+  /**
+   * Return the number of windows written.
+   */
+  public synchronized long getWindowCount() {
+    return windowCount;
+  }
+
+  /**
+   * Finish and close the file.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (jsonWriter != null) {
+      jsonWriter.endArray();
+      jsonWriter.endObject();
+      jsonWriter.close();
+    } else {
+      out.close();
+    }
+  }
+
+  private CompletableFuture<Void> exportWindow(final long originMicros, final long extentMicros) {
+    JsonObject params = new JsonObject();
+    params.addProperty("timeOriginMicros", originMicros);
+    params.addProperty("timeExtentMicros", extentMicros);
+    String method = format == Format.CHROME_JSON ? "getVMTimeline" : "getPerfettoVMTimeline";
+    return vmService.requestStreaming(method, params, reader -> {
+      synchronized (TimelineExporter.this) {
+        if (closed) {
+          throw new IOException("Exporter closed");
+        }
+        if (format == Format.CHROME_JSON) {
+          writeEvents(reader, originMicros, originMicros + extentMicros);
+        } else {
+          writeTrace(reader);
+        }
+        ++windowCount;
+      }
+      return null;
+    });
+  }
+
+  private void writeEvents(JsonReader reader, long startMicros, long endMicros) throws IOException {
+    JsonParser parser = new JsonParser();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (!"traceEvents".equals(reader.nextName())) {
+        reader.skipValue();
+        continue;
+      }
+      reader.beginArray();
+      while (reader.hasNext()) {
+        JsonObject event = parser.parse(reader).getAsJsonObject();
+        JsonElement ts = event.get("ts");
+        if (ts == null || !ts.isJsonPrimitive()) {
+          if (!metadataEvents.add(event.toString())) {
+            continue;
+          }
+        } else {
+          long timestamp = ts.getAsLong();
+          if (timestamp < startMicros || timestamp >= endMicros) {
+            continue;
+          }
+        }
+        gson.toJson(event, jsonWriter);
+        ++eventCount;
+      }
+      reader.endArray();
+    }
+    reader.endObject();
+    jsonWriter.flush();
+  }
+
+  private void writeTrace(JsonReader reader) throws IOException {
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (!"trace".equals(reader.nextName()) || reader.peek() != JsonToken.STRING) {
+        reader.skipValue();
+        continue;
+      }
+      final String trace = reader.nextString();
+      InputStream encoded = new InputStream() {
+        private int pos;
+
+        @Override
+        public int read() {
+          return pos < trace.length() ? trace.charAt(pos++) : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+          if (pos >= trace.length()) {
+            return -1;
+          }
+          int count = Math.min(length, trace.length() - pos);
+          for (int index = 0; index < count; ++index) {
+            buffer[offset + index] = (byte) trace.charAt(pos++);
+          }
+          return count;
+        }
+      };
+      try (InputStream decoded = Base64.getDecoder().wrap(encoded)) {
+        decoded.transferTo(out);
+      }
+    }
+    reader.endObject();
+    out.flush();
+  }
+}
@@ -16,6 +16,8 @@ package org.dartlang.vm.service;
 import com.google.gson.JsonObject;
 import org.dartlang.vm.service.consumer.*;
 import org.dartlang.vm.service.element.*;
+import org.dartlang.vm.service.heap.HeapSnapshotDecoder;
+import org.dartlang.vm.service.heap.HeapSnapshotGraph;
 import org.dartlang.vm.service.logging.Logger;
 import org.dartlang.vm.service.logging.Logging;
 
@@ -25,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class VmServiceTest {
   private static File dartVm;
@@ -146,6 +149,8 @@ public class VmServiceTest {
 
     // Get stack trace
     vmGetStack(sampleIsolate);
+    vmGetStackAsync(isolates.get(0));
+    vmGetHeapSnapshot(isolates.get(0));
 
     // Evaluate
     vmEvaluateInFrame(sampleIsolate, 0, "deepList[0]");
@@ -535,6 +540,37 @@ public class VmServiceTest {
     }
   }
 
+  private static void vmGetStackAsync(IsolateRef isolateRef) {
+    Stack stack;
+    try {
+      stack = vmService.getIsolateAsync(isolateRef.getId())
+          .thenCompose(isolate -> vmService.getStackAsync(isolate.getId()))
+          .get(5, TimeUnit.SECONDS);
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to get stack", e);
+    }
+    System.out.println("Received Stack response (async)");
+    System.out.println("  Frame count: " + stack.getFrames().size());
+    if (stack.getFrames().isEmpty()) {
+      showErrorAndExit("Expected at least one frame");
+    }
+  }
+
+  private static void vmGetHeapSnapshot(IsolateRef isolateRef) {
+    HeapSnapshotGraph graph;
+    try {
+      graph = HeapSnapshotDecoder.request(vmService, isolateRef.getId()).get(30, TimeUnit.SECONDS);
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to get heap snapshot", e);
+    }
+    System.out.println("Received heap snapshot");
+    System.out.println("  Object count: " + graph.getObjectCount());
+    System.out.println("  Reference count: " + graph.getTotalReferenceCount());
+    if (graph.getObjectCount() == 0 || graph.getReferenceCount(HeapSnapshotGraph.ROOT) == 0) {
+      showErrorAndExit("Expected a non-empty heap snapshot");
+    }
+  }
+
   private static void vmGetVersion() {
     final OpLatch latch = new OpLatch();
     vmService.getVersion(new VersionConsumer() {
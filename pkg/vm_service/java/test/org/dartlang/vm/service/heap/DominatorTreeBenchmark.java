@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.heap;
+
+import java.util.Random;
+
+/**
+ * Measures {@link DominatorTree#compute(HeapSnapshotGraph)} on a synthetic graph.
+ * <p>
+ * Usage: {@code DominatorTreeBenchmark [objectCount [referencesPerObject [iterations]]]}. The
+ * defaults of 10 million objects with 3 references each need a heap of about 2 GB.
+ */
+public class DominatorTreeBenchmark {
+  public static void main(String[] args) {
+    int objectCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+    int referencesPerObject = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+    int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+    if (objectCount < 1 || referencesPerObject < 1 || (long) objectCount * referencesPerObject > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("objectCount and referencesPerObject must be positive, "
+          + "with at most " + Integer.MAX_VALUE + " references in total");
+    }
+
+    long startMillis = System.currentTimeMillis();
+    HeapSnapshotGraph graph = createGraph(objectCount, referencesPerObject, new Random(42));
+    System.out.println("Created graph with " + graph.getObjectCount() + " objects and "
+        + graph.getTotalReferenceCount() + " references in "
+        + (System.currentTimeMillis() - startMillis) + "ms");
+
+    for (int iteration = 0; iteration < iterations; ++iteration) {
+      startMillis = System.currentTimeMillis();
+      DominatorTree tree = DominatorTree.compute(graph);
+      System.out.println("Computed dominator tree in " + (System.currentTimeMillis() - startMillis)
+          + "ms; root retains " + tree.getRetainedSize(HeapSnapshotGraph.ROOT) + " bytes");
+    }
+  }
+
+  /**
+   * Create a graph in which every object is reachable through a tree of references, plus random
+   * references to model sharing, and in which most objects are dominated by their tree parent.
+   */
+  private static HeapSnapshotGraph createGraph(int objectCount, int referencesPerObject, Random random) {
+    int classCount = 1000;
+    HeapSnapshotClass[] classes = new HeapSnapshotClass[classCount + 1];
+    for (int classId = 0; classId <= classCount; ++classId) {
+      classes[classId] = new HeapSnapshotClass(classId, "C" + classId, "", "", new String[0], new int[0]);
+    }
+    int[] classIds = new int[objectCount + 1];
+    int[] shallowSizes = new int[objectCount + 1];
+    int[] firstReferences = new int[objectCount + 2];
+    int[] references = new int[objectCount * referencesPerObject];
+    int next = 0;
+    for (int id = 1; id <= objectCount; ++id) {
+      classIds[id] = 1 + random.nextInt(classCount);
+      shallowSizes[id] = 16 + 8 * random.nextInt(16);
+      firstReferences[id] = next;
+      // Tree references: object id has children 4 * id - 2 through 4 * id + 1
+      for (long child = 4L * id - 2; child <= 4L * id + 1 && child <= objectCount && next < references.length; ++child) {
+        references[next++] = (int) child;
+      }
+      // Shared references to nearby objects
+      for (int count = 1; count < referencesPerObject && next < references.length; ++count) {
+        references[next++] = Math.max(1, Math.min(objectCount, id + random.nextInt(2048) - 1024));
+      }
+    }
+    firstReferences[objectCount + 1] = next;
+    return new HeapSnapshotGraph("benchmark", 0, 0, 0, 0, classes, objectCount, classIds, shallowSizes,
+        firstReferences, references, new int[objectCount + 1], new int[0], new long[0], new String[0]);
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.heap;
+
+import java.nio.IntBuffer;
+import java.util.Random;
+
+/**
+ * Checks {@link DominatorTree} against dominators computed naively from their definition on many
+ * small random graphs: an object dominates the objects which are reachable from the root, but not
+ * once the object is removed.
+ */
+public class DominatorTreeTest {
+  public static void main(String[] args) {
+    Random random = new Random(42);
+    for (int run = 0; run < 1000; ++run) {
+      int objectCount = 1 + random.nextInt(60);
+      HeapSnapshotGraph graph = createGraph(objectCount, random.nextInt(4), 1 + random.nextInt(5), random);
+      check(graph, DominatorTree.compute(graph), "graph " + run);
+    }
+    System.out.println("DominatorTree checks complete");
+  }
+
+  /**
+   * Create a random graph with the given average number of references per object, including null,
+   * duplicate and self references.
+   */
+  private static HeapSnapshotGraph createGraph(int objectCount, int referencesPerObject, int classCount,
+                                               Random random) {
+    HeapSnapshotClass[] classes = new HeapSnapshotClass[classCount + 1];
+    for (int classId = 0; classId <= classCount; ++classId) {
+      classes[classId] = new HeapSnapshotClass(classId, "C" + classId, "", "", new String[0], new int[0]);
+    }
+    int[] classIds = new int[objectCount + 1];
+    int[] shallowSizes = new int[objectCount + 1];
+    int[] firstReferences = new int[objectCount + 2];
+    int[][] objectReferences = new int[objectCount + 1][];
+    int referenceCount = 0;
+    for (int id = 1; id <= objectCount; ++id) {
+      classIds[id] = 1 + random.nextInt(classCount);
+      shallowSizes[id] = random.nextInt(100);
+      objectReferences[id] = new int[random.nextInt(2 * referencesPerObject + 1)];
+      for (int index = 0; index < objectReferences[id].length; ++index) {
+        objectReferences[id][index] = random.nextInt(objectCount + 1);
+      }
+      referenceCount += objectReferences[id].length;
+    }
+    int[] references = new int[referenceCount];
+    int next = 0;
+    for (int id = 1; id <= objectCount; ++id) {
+      firstReferences[id] = next;
+      for (int reference : objectReferences[id]) {
+        references[next++] = reference;
+      }
+    }
+    firstReferences[objectCount + 1] = next;
+    return new HeapSnapshotGraph("test", 0, 0, 0, 0, classes, objectCount, classIds, shallowSizes,
+        firstReferences, references, new int[objectCount + 1], new int[0], new long[0], new String[0]);
+  }
+
+  private static void check(HeapSnapshotGraph graph, DominatorTree tree, String description) {
+    int objectCount = graph.getObjectCount();
+    boolean[] reachable = reachable(graph, 0);
+
+    // dominated[d][w] if every path from the root to w passes through d
+    boolean[][] dominated = new boolean[objectCount + 1][];
+    dominated[HeapSnapshotGraph.ROOT] = reachable;
+    for (int id = HeapSnapshotGraph.ROOT + 1; id <= objectCount; ++id) {
+      boolean[] reachableWithout = reachable(graph, id);
+      dominated[id] = new boolean[objectCount + 1];
+      for (int w = 1; w <= objectCount; ++w) {
+        dominated[id][w] = reachable[w] && !reachableWithout[w];
+      }
+    }
+
+    int reachableCount = 0;
+    for (int w = 1; w <= objectCount; ++w) {
+      if (!reachable[w]) {
+        check(!tree.isReachable(w) && tree.getDominator(w) == 0 && tree.getRetainedSize(w) == 0,
+            description, "unreachable object " + w);
+        continue;
+      }
+      ++reachableCount;
+      check(tree.isReachable(w), description, "reachability of " + w);
+
+      // The immediate dominator is the strict dominator which dominates the fewest objects
+      int expectedDominator = 0;
+      int fewest = Integer.MAX_VALUE;
+      long retainedSize = 0;
+      for (int d = 1; d <= objectCount; ++d) {
+        if (d != w && dominated[d][w] && count(dominated[d]) < fewest) {
+          expectedDominator = d;
+          fewest = count(dominated[d]);
+        }
+        if (dominated[w][d]) {
+          retainedSize += graph.getShallowSize(d);
+        }
+      }
+      check(tree.getDominator(w) == expectedDominator, description, "dominator of " + w);
+      check(tree.getRetainedSize(w) == retainedSize, description, "retained size of " + w);
+    }
+    check(tree.getReachableCount() == reachableCount, description, "reachable count");
+
+    // A class retains the objects dominated by any of its reachable instances
+    for (int classId = 1; classId <= graph.getClassCount(); ++classId) {
+      long retainedSize = 0;
+      for (int w = 1; w <= objectCount; ++w) {
+        for (int d = 1; d <= objectCount; ++d) {
+          if (graph.getClassId(d) == classId && dominated[d][w]) {
+            retainedSize += graph.getShallowSize(w);
+            break;
+          }
+        }
+      }
+      check(tree.getClassRetainedSize(classId) == retainedSize, description,
+          "retained size of class " + classId);
+    }
+  }
+
+  /**
+   * Return the objects reachable from the root without passing through the given object.
+   */
+  private static boolean[] reachable(HeapSnapshotGraph graph, int removed) {
+    boolean[] reachable = new boolean[graph.getObjectCount() + 1];
+    int[] stack = new int[graph.getObjectCount() + 1];
+    int size = 0;
+    reachable[HeapSnapshotGraph.ROOT] = true;
+    stack[size++] = HeapSnapshotGraph.ROOT;
+    while (size > 0) {
+      IntBuffer references = graph.getReferences(stack[--size]);
+      while (references.hasRemaining()) {
+        int reference = references.get();
+        if (reference != 0 && reference != removed && !reachable[reference]) {
+          reachable[reference] = true;
+          stack[size++] = reference;
+        }
+      }
+    }
+    return reachable;
+  }
+
+  private static int count(boolean[] values) {
+    int count = 0;
+    for (boolean value : values) {
+      if (value) {
+        ++count;
+      }
+    }
+    return count;
+  }
+
+  private static void check(boolean condition, String description, String value) {
+    if (!condition) {
+      throw new RuntimeException("Wrong " + value + " in " + description);
+    }
+  }
+}
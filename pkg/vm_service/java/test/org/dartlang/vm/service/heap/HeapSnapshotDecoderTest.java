@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.heap;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.dartlang.vm.service.RPCErrorException;
+import org.dartlang.vm.service.VmService;
+import org.dartlang.vm.service.element.RPCError;
+import org.dartlang.vm.service.internal.RequestSink;
+import org.dartlang.vm.service.internal.WebSocketTransport;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that {@link HeapSnapshotDecoder} decodes random snapshots in the format described by
+ * runtime/vm/service/heap_snapshot.md identically however they are split into chunks, including
+ * chunks which split integers and strings and which are slices of larger buffers, and that
+ * {@link HeapSnapshotDecoder#request} fails if the connection closes part way through a snapshot.
+ */
+public class HeapSnapshotDecoderTest {
+  public static void main(String[] args) throws Exception {
+    Random random = new Random(42);
+    for (int snapshot = 0; snapshot < 50; ++snapshot) {
+      Snapshot expected = new Snapshot(random, 1 + random.nextInt(500));
+      byte[] bytes = expected.encode(random);
+
+      HeapSnapshotDecoder decoder = new HeapSnapshotDecoder();
+      decoder.add(ByteBuffer.wrap(bytes));
+      expected.check(decoder.finish(), "whole snapshot");
+
+      for (int split = 0; split < 20; ++split) {
+        decoder = new HeapSnapshotDecoder();
+        for (int offset = 0; offset < bytes.length; ) {
+          int length = Math.min(bytes.length - offset, 1 + random.nextInt(64));
+          decoder.add(slice(bytes, offset, length, random));
+          offset += length;
+        }
+        expected.check(decoder.finish(), "snapshot " + snapshot + " split " + split);
+      }
+
+      decoder = new HeapSnapshotDecoder();
+      decoder.add(ByteBuffer.wrap(bytes, 0, bytes.length - 1 - random.nextInt(Math.min(bytes.length - 1, 16))));
+      try {
+        decoder.finish();
+        throw new RuntimeException("Truncated snapshot " + snapshot + " was decoded");
+      } catch (IllegalStateException e) {
+        // expected
+      }
+    }
+    checkConnectionClosed(new Snapshot(random, 100).encode(random));
+    System.out.println("HeapSnapshotDecoder checks complete");
+  }
+
+  /**
+   * Check that requests fail, rather than waiting forever for the rest of the snapshot, when the
+   * connection closes after the first chunk of the given snapshot.
+   */
+  private static void checkConnectionClosed(byte[] bytes) throws Exception {
+    VmService vmService = VmService.connect("ws://localhost/ws", new ClosingTransport(bytes));
+    for (int request = 0; request < 2; ++request) {
+      CompletableFuture<HeapSnapshotGraph> future = HeapSnapshotDecoder.request(vmService, ISOLATE_ID);
+      try {
+        future.get(5, TimeUnit.SECONDS);
+        throw new RuntimeException("Snapshot completed after the connection closed");
+      } catch (ExecutionException e) {
+        if (!(e.getCause() instanceof RPCErrorException)
+            || ((RPCErrorException) e.getCause()).getError().getCode() != RPCError.CONNECTION_CLOSED) {
+          throw new RuntimeException("Unexpected failure after the connection closed", e);
+        }
+      }
+    }
+  }
+
+  private static final String ISOLATE_ID = "isolates/1";
+
+  /**
+   * A connection to a fake VM which answers requests, and closes after sending the first half of
+   * a heap snapshot. Messages are delivered on a single thread, as by a real transport.
+   */
+  private static class ClosingTransport implements WebSocketTransport {
+    private final byte[] snapshot;
+    private final ExecutorService thread = Executors.newSingleThreadExecutor(runnable -> {
+      Thread result = new Thread(runnable, "Fake VM");
+      result.setDaemon(true);
+      return result;
+    });
+
+    ClosingTransport(byte[] snapshot) {
+      this.snapshot = snapshot;
+    }
+
+    @Override
+    public RequestSink connect(URI uri, final Listener listener) {
+      thread.execute(listener::onOpen);
+      return new RequestSink() {
+        @Override
+        public void add(final JsonObject request) {
+          thread.execute(() -> {
+            String method = request.get("method").getAsString();
+            String result = method.equals("getVersion")
+                ? "{\"type\":\"Version\",\"major\":4,\"minor\":18}" : "{\"type\":\"Success\"}";
+            listener.onText("{\"jsonrpc\":\"2.0\",\"id\":\"" + request.get("id").getAsString()
+                + "\",\"result\":" + result + "}");
+            if (method.equals("requestHeapSnapshot")) {
+              listener.onBinary(chunk(snapshot, snapshot.length / 2));
+              listener.onClose();
+            }
+          });
+        }
+
+        @Override
+        public void close() {
+          thread.execute(listener::onClose);
+        }
+      };
+    }
+
+    /**
+     * Return a binary {@code HeapSnapshot} event holding the first bytes of the given snapshot.
+     */
+    private static ByteBuffer chunk(byte[] snapshot, int length) {
+      JsonObject event = new JsonParser().parse("{\"type\":\"Event\",\"kind\":\"HeapSnapshot\","
+          + "\"isolate\":{\"type\":\"@Isolate\",\"id\":\"" + ISOLATE_ID + "\"},\"last\":false}").getAsJsonObject();
+      JsonObject params = new JsonObject();
+      params.addProperty("streamId", VmService.HEAPSNAPSHOT_STREAM_ID);
+      params.add("event", event);
+      JsonObject message = new JsonObject();
+      message.addProperty("jsonrpc", "2.0");
+      message.addProperty("method", "streamNotify");
+      message.add("params", params);
+      byte[] metadata = message.toString().getBytes(StandardCharsets.UTF_8);
+      ByteBuffer buffer = ByteBuffer.allocate(4 + metadata.length + length).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putInt(4 + metadata.length).put(metadata).put(snapshot, 0, length).flip();
+      return buffer.asReadOnlyBuffer();
+    }
+  }
+
+  /**
+   * Return the given bytes as a read-only buffer whose position is not {@code 0}, backed by a
+   * larger heap or direct buffer.
+   */
+  private static ByteBuffer slice(byte[] bytes, int offset, int length, Random random) {
+    int padding = random.nextInt(8);
+    ByteBuffer buffer = random.nextBoolean()
+        ? ByteBuffer.allocate(padding + length + padding) : ByteBuffer.allocateDirect(padding + length + padding);
+    buffer.position(padding);
+    buffer.put(bytes, offset, length);
+    buffer.position(padding);
+    buffer.limit(padding + length);
+    return random.nextBoolean() ? buffer.asReadOnlyBuffer() : buffer.slice();
+  }
+
+  /**
+   * A random snapshot and the values it should decode to.
+   */
+  private static class Snapshot {
+    final int classCount;
+    final int objectCount;
+    final int[] classIds;
+    final int[] shallowSizes;
+    final int[][] references;
+    final int[] identityHashCodes;
+    final String externalName = "external\u00e9";
+    final long externalSize;
+    final int externalObject;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    Snapshot(Random random, int objectCount) {
+      this.classCount = 1 + random.nextInt(20);
+      this.objectCount = objectCount;
+      classIds = new int[objectCount + 1];
+      shallowSizes = new int[objectCount + 1];
+      references = new int[objectCount + 1][];
+      identityHashCodes = new int[objectCount + 1];
+      for (int id = 1; id <= objectCount; ++id) {
+        classIds[id] = 1 + random.nextInt(classCount);
+        shallowSizes[id] = random.nextInt(4) == 0 ? random.nextInt(1 << 30) : 16 + random.nextInt(256);
+        references[id] = new int[random.nextInt(6)];
+        for (int index = 0; index < references[id].length; ++index) {
+          references[id][index] = random.nextInt(objectCount + 1);
+        }
+        identityHashCodes[id] = random.nextInt() & 0x7fffffff;
+      }
+      externalSize = random.nextLong() & 0xffffffffffL;
+      externalObject = 1 + random.nextInt(objectCount);
+    }
+
+    byte[] encode(Random random) {
+      out.write("dartheap".getBytes(StandardCharsets.US_ASCII), 0, 8);
+      writeUnsigned(0);
+      writeString("isolate \u2603");
+      writeUnsigned(123456789);
+      writeUnsigned(987654321);
+      writeUnsigned(4096);
+
+      writeUnsigned(classCount);
+      for (int classId = 1; classId <= classCount; ++classId) {
+        writeUnsigned(0);
+        writeString("Class" + classId);
+        writeString("library" + classId);
+        writeString("package:test/library" + classId + ".dart");
+        writeString("");
+        writeUnsigned(2);
+        for (int field = 0; field < 2; ++field) {
+          writeUnsigned(0);
+          writeUnsigned(field);
+          writeString("field" + field);
+          writeString("");
+        }
+      }
+
+      int referenceCount = 0;
+      for (int id = 1; id <= objectCount; ++id) {
+        referenceCount += references[id].length;
+      }
+      writeUnsigned(referenceCount + random.nextInt(10));
+      writeUnsigned(objectCount);
+      for (int id = 1; id <= objectCount; ++id) {
+        writeUnsigned(classIds[id]);
+        writeUnsigned(shallowSizes[id]);
+        writeData(random);
+        writeUnsigned(references[id].length);
+        for (int reference : references[id]) {
+          writeUnsigned(reference);
+        }
+      }
+
+      writeUnsigned(1);
+      writeUnsigned(externalObject);
+      writeUnsigned(externalSize);
+      writeString(externalName);
+
+      for (int id = 1; id <= objectCount; ++id) {
+        writeUnsigned(identityHashCodes[id]);
+      }
+      return out.toByteArray();
+    }
+
+    /**
+     * Write non-reference data of a random kind, which the decoder skips.
+     */
+    private void writeData(Random random) {
+      int tag = random.nextInt(9);
+      writeUnsigned(tag);
+      switch (tag) {
+        case 2:
+          writeUnsigned(random.nextInt(2));
+          break;
+        case 3:
+          writeSigned(random.nextLong());
+          break;
+        case 4:
+          out.write(new byte[8], 0, 8);
+          break;
+        case 5:
+          writeUnsigned(1000);
+          writeString("latin1");
+          break;
+        case 6:
+          writeUnsigned(1000);
+          writeUnsigned(3);
+          out.write(new byte[6], 0, 6);
+          break;
+        case 7:
+          writeUnsigned(random.nextInt(100000));
+          break;
+        case 8:
+          writeString("name");
+          break;
+        default:
+          break;
+      }
+    }
+
+    private void writeUnsigned(long value) {
+      do {
+        int b = (int) (value & 0x7f);
+        value >>>= 7;
+        out.write(value != 0 ? b | 0x80 : b);
+      } while (value != 0);
+    }
+
+    private void writeSigned(long value) {
+      while (true) {
+        int b = (int) (value & 0x7f);
+        value >>= 7;
+        if ((value == 0 && (b & 0x40) == 0) || (value == -1 && (b & 0x40) != 0)) {
+          out.write(b);
+          return;
+        }
+        out.write(b | 0x80);
+      }
+    }
+
+    private void writeString(String value) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeUnsigned(bytes.length);
+      out.write(bytes, 0, bytes.length);
+    }
+
+    void check(HeapSnapshotGraph graph, String description) {
+      check(graph.getName().equals("isolate \u2603"), description, "name");
+      check(graph.getShallowSize() == 123456789 && graph.getCapacity() == 987654321
+          && graph.getExternalSize() == 4096, description, "header");
+      check(graph.getClassCount() == classCount, description, "class count");
+      HeapSnapshotClass lastClass = graph.getClass(classCount);
+      check(lastClass.getName().equals("Class" + classCount)
+          && lastClass.getLibraryUri().equals("package:test/library" + classCount + ".dart")
+          && lastClass.getFieldCount() == 2 && lastClass.getFieldName(1).equals("field1"), description, "class");
+      check(graph.getObjectCount() == objectCount, description, "object count");
+      for (int id = 1; id <= objectCount; ++id) {
+        check(graph.getClassId(id) == classIds[id], description, "class id of " + id);
+        check(graph.getShallowSize(id) == shallowSizes[id], description, "shallow size of " + id);
+        check(graph.getIdentityHashCode(id) == identityHashCodes[id], description, "hash code of " + id);
+        IntBuffer actual = graph.getReferences(id);
+        check(actual.remaining() == references[id].length, description, "reference count of " + id);
+        for (int index = 0; index < references[id].length; ++index) {
+          check(actual.get(actual.position() + index) == references[id][index], description, "references of " + id);
+        }
+      }
+      check(graph.getExternalPropertyCount() == 1 && graph.getExternalPropertyName(0).equals(externalName)
+          && graph.getExternalPropertySize(0) == externalSize
+          && graph.getExternalPropertyObject(0) == externalObject, description, "external property");
+    }
+
+    private static void check(boolean condition, String description, String value) {
+      if (!condition) {
+        throw new RuntimeException("Wrong " + value + " decoded from " + description);
+      }
+    }
+  }
+}
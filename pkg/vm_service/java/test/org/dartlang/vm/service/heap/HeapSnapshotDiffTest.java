@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.heap;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks that {@link HeapSnapshotDiff} pairs classes by library and name, and matches objects by
+ * class and identity hash code, including distinct objects with the same hash code and objects
+ * without one, on many random pairs of snapshots.
+ */
+public class HeapSnapshotDiffTest {
+  public static void main(String[] args) {
+    checkClassPairing();
+    Random random = new Random(42);
+    for (int run = 0; run < 500; ++run) {
+      checkObjects(random, "pair " + run);
+    }
+    System.out.println("HeapSnapshotDiff checks complete");
+  }
+
+  /**
+   * Check that classes are paired by library and name whatever their ids, and that classes in only
+   * one snapshot are reported with a class id of {@code 0} in the other.
+   */
+  private static void checkClassPairing() {
+    HeapSnapshotGraph before = createGraph(new String[][]{
+        {"lib1", "A"}, {"lib1", "B"}, {"lib2", "B"}, {"lib1", "Gone"}}, new int[]{1, 2, 3, 4}, new int[]{7, 7, 7, 7});
+    HeapSnapshotGraph after = createGraph(new String[][]{
+        {"lib2", "B"}, {"lib1", "New"}, {"lib1", "A"}, {"lib1", "B"}}, new int[]{1, 2, 3, 4}, new int[]{7, 7, 7, 7});
+    HeapSnapshotDiff diff = HeapSnapshotDiff.compute(before, after);
+
+    Map<String, HeapSnapshotDiff.ClassDelta> deltas = byName(diff.getClassDeltas(), "class pairing");
+    check(deltas.size() == 5, "class pairing", "class count");
+    checkClassIds(deltas.get("lib1::A"), 1, 3);
+    checkClassIds(deltas.get("lib1::B"), 2, 4);
+    checkClassIds(deltas.get("lib2::B"), 3, 1);
+    checkClassIds(deltas.get("lib1::Gone"), 4, 0);
+    checkClassIds(deltas.get("lib1::New"), 0, 2);
+
+    // Every object has hash code 7, so only those of paired classes match
+    check(diff.getMatch(1) == 3 && diff.getMatch(2) == 4 && diff.getMatch(3) == 1 && diff.getMatch(4) == 0,
+        "class pairing", "matches");
+    check(diff.getSurvivingCount() == 3 && diff.getFreedCount() == 1 && diff.getNewCount() == 1,
+        "class pairing", "counts");
+  }
+
+  private static void checkClassIds(HeapSnapshotDiff.ClassDelta delta, int beforeClassId, int afterClassId) {
+    check(delta != null && delta.getBeforeClassId() == beforeClassId && delta.getAfterClassId() == afterClassId,
+        "class pairing", "class ids of " + delta);
+  }
+
+  /**
+   * Check a diff of two random snapshots against counts computed directly. Hash codes are drawn
+   * from a small range, including {@code 0}, so that many objects share them.
+   */
+  private static void checkObjects(Random random, String description) {
+    int classCount = 1 + random.nextInt(5);
+    String[][] classes = new String[classCount][];
+    for (int index = 0; index < classCount; ++index) {
+      classes[index] = new String[]{"lib", "C" + index};
+    }
+    HeapSnapshotGraph before = createRandomGraph(classes, random);
+    HeapSnapshotGraph after = createRandomGraph(classes, random);
+    HeapSnapshotDiff diff = HeapSnapshotDiff.compute(before, after);
+
+    // Each match must pair objects of the same class with the same non-zero hash code, and each
+    // object in the later snapshot may only be matched once
+    boolean[] matched = new boolean[after.getObjectCount() + 1];
+    for (int id = 1; id <= before.getObjectCount(); ++id) {
+      int match = diff.getMatch(id);
+      if (match != 0) {
+        check(!matched[match] && before.getIdentityHashCode(id) != 0
+            && before.getIdentityHashCode(id) == after.getIdentityHashCode(match)
+            && before.getClassId(id) == after.getClassId(match), description, "match of " + id);
+        matched[match] = true;
+      }
+    }
+
+    // As many objects survive for each class and hash code as are in both snapshots
+    Map<Long, int[]> counts = new HashMap<>();
+    for (int id = 1; id <= before.getObjectCount(); ++id) {
+      if (before.getIdentityHashCode(id) != 0) {
+        ++counts.computeIfAbsent(key(before, id), k -> new int[2])[0];
+      }
+    }
+    for (int id = 1; id <= after.getObjectCount(); ++id) {
+      if (after.getIdentityHashCode(id) != 0) {
+        ++counts.computeIfAbsent(key(after, id), k -> new int[2])[1];
+      }
+    }
+    int survivingCount = 0;
+    for (int[] count : counts.values()) {
+      survivingCount += Math.min(count[0], count[1]);
+    }
+    check(diff.getSurvivingCount() == survivingCount, description, "surviving count");
+    check(diff.getFreedCount() == before.getObjectCount() - survivingCount, description, "freed count");
+    check(diff.getNewCount() == after.getObjectCount() - survivingCount, description, "new count");
+
+    // Class deltas add up the instances of each class
+    Map<String, HeapSnapshotDiff.ClassDelta> deltas = byName(diff.getClassDeltas(), description);
+    for (int classId = 1; classId <= classCount; ++classId) {
+      HeapSnapshotDiff.ClassDelta delta = deltas.get("lib::C" + (classId - 1));
+      int beforeCount = 0;
+      int freedCount = 0;
+      long beforeShallowSize = 0;
+      for (int id = 1; id <= before.getObjectCount(); ++id) {
+        if (before.getClassId(id) == classId) {
+          ++beforeCount;
+          beforeShallowSize += before.getShallowSize(id);
+          freedCount += diff.getMatch(id) == 0 ? 1 : 0;
+        }
+      }
+      int afterCount = 0;
+      int newCount = 0;
+      long afterShallowSize = 0;
+      for (int id = 1; id <= after.getObjectCount(); ++id) {
+        if (after.getClassId(id) == classId) {
+          ++afterCount;
+          afterShallowSize += after.getShallowSize(id);
+          newCount += matched[id] ? 0 : 1;
+        }
+      }
+      check(delta.getBeforeCount() == beforeCount && delta.getAfterCount() == afterCount
+          && delta.getFreedCount() == freedCount && delta.getNewCount() == newCount
+          && delta.getBeforeShallowSize() == beforeShallowSize && delta.getAfterShallowSize() == afterShallowSize,
+          description, "delta of " + delta);
+    }
+
+    // The cursors visit exactly the objects of each kind, in order
+    int previous = 0;
+    int count = 0;
+    for (HeapSnapshotDiff.Cursor cursor = diff.objects(HeapSnapshotDiff.Change.SURVIVING); cursor.next(); ++count) {
+      check(cursor.getBeforeId() > previous && diff.getMatch(cursor.getBeforeId()) == cursor.getAfterId()
+          && cursor.getAfterId() != 0, description, "surviving cursor");
+      previous = cursor.getBeforeId();
+    }
+    check(count == survivingCount, description, "surviving cursor count");
+    count = 0;
+    for (HeapSnapshotDiff.Cursor cursor = diff.objects(HeapSnapshotDiff.Change.FREED); cursor.next(); ++count) {
+      check(diff.getMatch(cursor.getBeforeId()) == 0 && cursor.getAfterId() == 0, description, "freed cursor");
+    }
+    check(count == diff.getFreedCount(), description, "freed cursor count");
+    count = 0;
+    for (HeapSnapshotDiff.Cursor cursor = diff.objects(HeapSnapshotDiff.Change.NEW); cursor.next(); ++count) {
+      check(!matched[cursor.getAfterId()] && cursor.getBeforeId() == 0, description, "new cursor");
+    }
+    check(count == diff.getNewCount(), description, "new cursor count");
+  }
+
+  private static long key(HeapSnapshotGraph graph, int id) {
+    return ((long) graph.getClassId(id) << 32) | (graph.getIdentityHashCode(id) & 0xFFFFFFFFL);
+  }
+
+  private static Map<String, HeapSnapshotDiff.ClassDelta> byName(List<HeapSnapshotDiff.ClassDelta> deltas,
+                                                                 String description) {
+    Map<String, HeapSnapshotDiff.ClassDelta> result = new HashMap<>();
+    for (HeapSnapshotDiff.ClassDelta delta : deltas) {
+      check(result.put(delta.getLibraryUri() + "::" + delta.getName(), delta) == null, description,
+          "duplicate delta " + delta);
+    }
+    return result;
+  }
+
+  private static HeapSnapshotGraph createRandomGraph(String[][] classes, Random random) {
+    int objectCount = random.nextInt(200);
+    int[] classIds = new int[objectCount];
+    int[] hashCodes = new int[objectCount];
+    for (int index = 0; index < objectCount; ++index) {
+      classIds[index] = 1 + random.nextInt(classes.length);
+      hashCodes[index] = random.nextInt(20);
+    }
+    return createGraph(classes, classIds, hashCodes);
+  }
+
+  /**
+   * Create a snapshot without references of objects of the given classes, given as library and
+   * name, with the given class ids and identity hash codes.
+   */
+  private static HeapSnapshotGraph createGraph(String[][] classNames, int[] objectClassIds, int[] hashCodes) {
+    int objectCount = objectClassIds.length;
+    HeapSnapshotClass[] classes = new HeapSnapshotClass[classNames.length + 1];
+    classes[0] = new HeapSnapshotClass(0, "Root", "", "", new String[0], new int[0]);
+    for (int classId = 1; classId <= classNames.length; ++classId) {
+      String[] name = classNames[classId - 1];
+      classes[classId] = new HeapSnapshotClass(classId, name[1], name[0], name[0], new String[0], new int[0]);
+    }
+    int[] classIds = new int[objectCount + 1];
+    int[] shallowSizes = new int[objectCount + 1];
+    int[] identityHashCodes = new int[objectCount + 1];
+    for (int id = 1; id <= objectCount; ++id) {
+      classIds[id] = objectClassIds[id - 1];
+      shallowSizes[id] = 8 * id;
+      identityHashCodes[id] = hashCodes[id - 1];
+    }
+    return new HeapSnapshotGraph("test", 0, 0, 0, 0, classes, objectCount, classIds, shallowSizes,
+        new int[objectCount + 2], new int[0], identityHashCodes, new int[0], new long[0], new String[0]);
+  }
+
+  private static void check(boolean condition, String description, String value) {
+    if (!condition) {
+      throw new RuntimeException("Wrong " + value + " in " + description);
+    }
+  }
+}
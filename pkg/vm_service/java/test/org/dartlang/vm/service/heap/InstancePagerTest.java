@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.heap;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonPrimitive;
+import org.dartlang.vm.service.element.ElementList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Checks that {@link InstancePager} returns the elements of a paged collection in order, both
+ * sequentially and from parallel streams, over a fake collection whose pages complete after random
+ * delays and are sometimes shorter than requested.
+ */
+public class InstancePagerTest {
+  public static void main(String[] args) {
+    Random random = new Random(42);
+    for (int run = 0; run < 100; ++run) {
+      int length = random.nextInt(5000);
+      int pageSize = 1 + random.nextInt(200);
+      InstancePager<Integer> pager = createPager(length, pageSize, random.nextLong());
+      List<Integer> expected = new ArrayList<>();
+      for (int index = 0; index < length; ++index) {
+        expected.add(index);
+      }
+
+      List<Integer> sequential = new ArrayList<>();
+      for (Integer element : pager) {
+        sequential.add(element);
+      }
+      check(expected.equals(sequential), "sequential iteration", length, pageSize);
+
+      List<Integer> collected = pager.stream(true).collect(Collectors.toList());
+      check(expected.equals(collected), "parallel collect", length, pageSize);
+
+      final List<Integer> ordered = new ArrayList<>();
+      pager.stream(true).forEachOrdered(ordered::add);
+      check(expected.equals(ordered), "parallel forEachOrdered", length, pageSize);
+
+      Integer first = pager.stream(true).filter(element -> element >= length / 2).findFirst()
+          .orElse(null);
+      check(length == 0 ? first == null : first == length / 2, "parallel findFirst", length, pageSize);
+    }
+    System.out.println("InstancePager checks complete");
+  }
+
+  /**
+   * Create a pager over the integers up to {@code length}, whose pages are fetched asynchronously
+   * and may be shorter than requested.
+   */
+  private static InstancePager<Integer> createPager(int length, int pageSize, long seed) {
+    final Random random = new Random(seed);
+    InstancePager.PageSource<Integer> source = new InstancePager.PageSource<Integer>() {
+      @Override
+      public CompletableFuture<ElementList<Integer>> fetch(final int offset, int count) {
+        final int returned;
+        final long delayMicros;
+        synchronized (random) {
+          returned = random.nextInt(4) == 0 ? 1 + random.nextInt(count) : count;
+          delayMicros = random.nextInt(8) == 0 ? random.nextInt(500) : 0;
+        }
+        return CompletableFuture.supplyAsync(() -> {
+          try {
+            if (delayMicros > 0) {
+              TimeUnit.MICROSECONDS.sleep(delayMicros);
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return page(offset, Math.min(returned, length - offset));
+        });
+      }
+    };
+    return new InstancePager<>(source, "fake", pageSize, length, page(0, Math.min(pageSize, length)));
+  }
+
+  private static ElementList<Integer> page(int offset, int count) {
+    JsonArray array = new JsonArray();
+    for (int index = offset; index < offset + count; ++index) {
+      array.add(new JsonPrimitive(index));
+    }
+    return new ElementList<Integer>(array) {
+      @Override
+      protected Integer basicGet(JsonArray array, int index) {
+        return array.get(index).getAsInt();
+      }
+    };
+  }
+
+  private static void check(boolean condition, String description, int length, int pageSize) {
+    if (!condition) {
+      throw new RuntimeException(description + " returned the wrong elements for length " + length
+          + " and page size " + pageSize);
+    }
+  }
+}
@@ -159,6 +159,7 @@ class Api extends Member with ApiParseUtil {
       writer.addImport('com.google.gson.JsonObject');
       writer.addImport('com.google.gson.JsonPrimitive');
       writer.addImport('java.util.List');
+      writer.addImport('java.util.concurrent.CompletableFuture');
 
       writer.addImport('$servicePackage.consumer.*');
       writer.addImport('$servicePackage.element.*');
@@ -186,8 +187,10 @@ class Api extends Member with ApiParseUtil {
               'The minor version number of the protocol supported by this client.');
       for (var m in methods) {
         m.generateVmServiceMethod(writer);
+        m.generateVmServiceAsyncMethod(writer);
         if (m.hasOptionalArgs) {
           m.generateVmServiceMethod(writer, includeOptional: true);
+          m.generateVmServiceAsyncMethod(writer, includeOptional: true);
         }
       }
 
@@ -250,6 +253,22 @@ class Api extends Member with ApiParseUtil {
   Type? getType(String? name) =>
       types.firstWhere((t) => t!.name == name, orElse: () => null);
 
+  /// Return the name of the closest type which all of [typeNames] extend,
+  /// or `Response` if there is none.
+  String commonSuperTypeName(Iterable<String> typeNames) {
+    List<String>? common;
+    for (var typeName in typeNames) {
+      var hierarchy = <String>[];
+      for (Type? t = getType(typeName); t != null; t = t.getSuper()) {
+        hierarchy.add(t.name!);
+      }
+      common = common == null
+          ? hierarchy
+          : common.where((name) => hierarchy.contains(name)).toList();
+    }
+    return common == null || common.isEmpty ? 'Response' : common.first;
+  }
+
   bool isEnumName(String? typeName) =>
       enums.any((Enum? e) => e!.name == typeName);
 
@@ -574,26 +593,71 @@ class Method extends Member {
     writer.addLine('}');
   }
 
+  /// The type with which the future returned by the `Async` variant of this
+  /// method completes. A [Sentinel] response completes the future
+  /// exceptionally rather than being part of this type.
+  String get asyncValueTypeName {
+    var valueTypes = returnType.types.where((t) => t.name != 'Sentinel');
+    if (valueTypes.length == 1) return valueTypes.first.javaBoxedName!;
+    return api.commonSuperTypeName(valueTypes.map((t) => t.name!));
+  }
+
+  void generateVmServiceAsyncMethod(TypeWriter writer,
+      {includeOptional = false}) {
+    var javadoc = StringBuffer();
+    javadoc.writeln('Asynchronous variant of {@link #$name} which returns a '
+        '{@link CompletableFuture} rather than taking a consumer. If the '
+        'request fails, the future completes exceptionally with an '
+        '{@link RPCErrorException}.');
+    if (returnType.hasSentinel) {
+      javadoc.writeln('If the VM responds with a {@link Sentinel}, the future '
+          'completes exceptionally with a {@link SentinelException}.');
+    }
+    _writeParamDocs(javadoc, includeOptional);
+
+    List<MethodArg> mthArgs = args;
+    if (!includeOptional) {
+      mthArgs = mthArgs.toList()..removeWhere((a) => a.optional);
+    }
+
+    List<JavaMethodArg> javaMethodArgs =
+        List.from(mthArgs.map((a) => a.asJavaMethodArg));
+    var consumerName = classNameFor(consumerTypeName);
+    var futureTypeName = 'CompletableFuture<$asyncValueTypeName>';
+    var callArgs = mthArgs.map((a) => '${a.name}, ').join();
+    writer.addMethod('${name}Async', javaMethodArgs, (StatementWriter writer) {
+      writer.addLine(
+          'final $futureTypeName future = new CompletableFuture<>();');
+      writer.addLine('$name(${callArgs}new $consumerName() {');
+      writer.addLine('  @Override');
+      writer.addLine('  public void onError(RPCError error) {');
+      writer.addLine(
+          '    future.completeExceptionally(new RPCErrorException(error));');
+      writer.addLine('  }');
+      for (var t in returnType.types) {
+        writer.addLine('');
+        writer.addLine('  @Override');
+        writer.addLine('  public void received(${t.name} response) {');
+        if (t.name == 'Sentinel') {
+          writer.addLine('    future.completeExceptionally('
+              'new SentinelException(response));');
+        } else {
+          writer.addLine('    future.complete(response);');
+        }
+        writer.addLine('  }');
+      }
+      writer.addLine('});');
+      writer.addLine('return future;');
+    },
+        javadoc: javadoc.toString(),
+        returnType: futureTypeName,
+        isDeprecated: deprecated);
+  }
+
   void generateVmServiceMethod(TypeWriter writer, {includeOptional = false}) {
     // Update method docs
     var javadoc = StringBuffer(docs == null ? '' : docs!);
-    bool firstParamDoc = true;
-    for (var a in args) {
-      if (!includeOptional && a.optional) continue;
-      var paramDoc = StringBuffer(a.docs ?? '');
-      if (paramDoc.isEmpty) {}
-      if (a.optional) {
-        if (paramDoc.isNotEmpty) paramDoc.write(' ');
-        paramDoc.write('This parameter is optional and may be null.');
-      }
-      if (paramDoc.isNotEmpty) {
-        if (firstParamDoc) {
-          javadoc.writeln();
-          firstParamDoc = false;
-        }
-        javadoc.writeln('@param ${a.name} $paramDoc');
-      }
-    }
+    _writeParamDocs(javadoc, includeOptional);
 
     if (args.any((MethodArg arg) => (arg.type.name == 'Map'))) {
       writer.addImport('java.util.Map');
@@ -635,6 +699,25 @@ class Method extends Member {
     }, javadoc: javadoc.toString(), isDeprecated: deprecated);
   }
 
+  void _writeParamDocs(StringBuffer javadoc, bool includeOptional) {
+    bool firstParamDoc = true;
+    for (var a in args) {
+      if (!includeOptional && a.optional) continue;
+      var paramDoc = StringBuffer(a.docs ?? '');
+      if (a.optional) {
+        if (paramDoc.isNotEmpty) paramDoc.write(' ');
+        paramDoc.write('This parameter is optional and may be null.');
+      }
+      if (paramDoc.isNotEmpty) {
+        if (firstParamDoc) {
+          javadoc.writeln();
+          firstParamDoc = false;
+        }
+        javadoc.writeln('@param ${a.name} $paramDoc');
+      }
+    }
+  }
+
   void _parse(Token? token) {
     MethodParser(token).parseInto(this);
   }
@@ -1004,6 +1087,45 @@ class TypeField extends Member {
         returnType: returnType,
         isOverride: overrides,
       );
+      if (type.valueType!.name == 'int' && type.valueType!.isArray) {
+        generatePrimitiveArrayAccessors(writer);
+      }
+    }
+  }
+
+  /// Generate accessors for an `int[]` or `int[][]` field which decode the
+  /// JSON array without boxing each value.
+  void generatePrimitiveArrayAccessors(TypeWriter writer) {
+    final nested = type.valueType!.arrayDepth > 1;
+    final nullable = optional ? '\n\nCan return <code>null</code>.' : '';
+    final empty = optional
+        ? '\n\nReturns an empty stream rather than <code>null</code> if the '
+            'field is absent.'
+        : '';
+    writer.addMethod(
+      '${accessorName}Array',
+      [],
+      (StatementWriter w) {
+        w.addLine(nested
+            ? 'return getIntArrayArray("$name");'
+            : 'return getIntArray("$name");');
+      },
+      javadoc: 'The values of {@link #$accessorName()}, without boxing each '
+          'value.$nullable',
+      returnType: nested ? 'int[][]' : 'int[]',
+    );
+    if (!nested) {
+      writer.addMethod(
+        '${accessorName}Stream',
+        [],
+        (StatementWriter w) {
+          w.addImport('java.util.stream.IntStream');
+          w.addLine('return getIntStream("$name");');
+        },
+        javadoc: 'The values of {@link #$accessorName()}, decoded as they are '
+            'consumed.$empty',
+        returnType: 'IntStream',
+      );
     }
   }
 }
@@ -1163,53 +1285,60 @@ class TypeRef {
     } else {
       if (arrayDepth > 1) {
         print('skipped accessor body for $propertyName');
-      } else if (arrayDepth == 1) {
+        return;
+      }
+      // Build the child view once and return the same view on later calls
+      final lines = <String>[];
+      if (arrayDepth == 1) {
         writer.addImport('com.google.gson.JsonArray');
         if (optional) {
-          writer.addLine('if (json.get("$propertyName") == null) return null;');
-          writer.addLine('');
+          lines.add('if (json.get("$propertyName") == null) return null;');
         }
-        writer.addLine(
+        lines.add(
             'return new ElementList<$javaBoxedName>(json.get("$propertyName").getAsJsonArray()) {');
-        writer.addLine('  @Override');
-        writer.addLine(
+        lines.add('  @Override');
+        lines.add(
             '  protected $javaBoxedName basicGet(JsonArray array, int index) {');
-        writer.addLine(
+        lines.add(
             '    return new $javaBoxedName(array.get(index).getAsJsonObject());');
-        writer.addLine('  }');
-        writer.addLine('};');
+        lines.add('  }');
+        lines.add('};');
       } else {
         if (canBeSentinel) {
           writer.addImport('com.google.gson.JsonElement');
-          writer.addLine('final JsonElement elem = json.get("$propertyName");');
-          writer.addLine('if (!elem.isJsonObject()) return null;');
-          writer.addLine('final JsonObject child = elem.getAsJsonObject();');
-          writer
-              .addLine('final String type = child.get("type").getAsString();');
-          writer.addLine('if ("Sentinel".equals(type)) return null;');
-          writer.addLine('return new $name(child);');
+          lines.add('final JsonElement elem = json.get("$propertyName");');
+          lines.add('if (!elem.isJsonObject()) return null;');
+          lines.add('final JsonObject child = elem.getAsJsonObject();');
+          lines.add('final String type = child.get("type").getAsString();');
+          lines.add('if ("Sentinel".equals(type)) return null;');
+          lines.add('return new $name(child);');
         } else {
           if (optional) {
-            writer.addLine(
+            lines.add(
                 'JsonObject obj = (JsonObject) json.get("$propertyName");');
-            writer.addLine('if (obj == null) return null;');
+            lines.add('if (obj == null) return null;');
             if ((name != 'InstanceRef') && (name != 'Instance')) {
-              writer.addLine(
+              lines.add(
                   'final String type = json.get("type").getAsString();');
-              writer.addLine(
+              lines.add(
                   'if ("Instance".equals(type) || "@Instance".equals(type)) {');
-              writer.addLine(
+              lines.add(
                   '  final String kind = json.get("kind").getAsString();');
-              writer.addLine('  if ("Null".equals(kind)) return null;');
-              writer.addLine('}');
+              lines.add('  if ("Null".equals(kind)) return null;');
+              lines.add('}');
             }
-            writer.addLine('return new $name(obj);');
+            lines.add('return new $name(obj);');
           } else {
-            writer.addLine(
+            lines.add(
                 'return new $name((JsonObject) json.get("$propertyName"));');
           }
         }
       }
+      writer.addLine('return child("$propertyName", () -> {');
+      for (String line in lines) {
+        writer.addLine('  $line');
+      }
+      writer.addLine('});');
     }
   }
 